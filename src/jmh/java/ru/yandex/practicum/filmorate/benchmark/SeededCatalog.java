@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+// Приложение без веб-слоя на отдельной in-memory H2, заполненной заданными объёмами данных.
+// Данные вставляются пачками напрямую в таблицы, затем индексы хранилищ перестраиваются так же,
+// как при старте приложения.
+@State(Scope.Benchmark)
+public class SeededCatalog {
+    private static final int BATCH = 1000;
+
+    @Param("10000")
+    public int films;
+
+    @Param("2000")
+    public int users;
+
+    @Param("20")
+    public int likesPerUser;
+
+    @Param("20")
+    public int friendsPerUser;
+
+    public FilmDbStorage filmStorage;
+    public UserDbStorage userStorage;
+    public FilmService filmService;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+        seed(context.getBean(JdbcTemplate.class));
+
+        filmStorage = context.getBean(FilmDbStorage.class);
+        userStorage = context.getBean(UserDbStorage.class);
+        filmService = context.getBean(FilmService.class);
+        filmStorage.rebuildIndexes();
+        userStorage.rebuildIndexes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        SplittableRandom random = new SplittableRandom(42);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= films; i++) {
+            rows.add(new Object[]{i, "Фильм " + i, "Описание " + i,
+                    Date.valueOf(LocalDate.of(1950 + i % 70, 1 + i % 12, 1)), 60 + i % 120, 1 + i % 5});
+        }
+        batch(jdbc, "INSERT INTO films (id, name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        rows.clear();
+        for (int i = 1; i <= films; i++) {
+            int first = 1 + i % 6;
+            rows.add(new Object[]{i, first});
+            if (i % 3 == 0) rows.add(new Object[]{i, 1 + first % 6});
+        }
+        batch(jdbc, "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", rows);
+
+        rows.clear();
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{i, "u" + i + "@bench.ru", "u" + i, "user " + i, Date.valueOf("1990-01-01")});
+        }
+        batch(jdbc, "INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+
+        rows.clear();
+        for (int u = 1; u <= users; u++) {
+            // смещение к началу каталога даёт «популярные» фильмы, как в реальном распределении
+            for (int k = 0; k < likesPerUser; k++) {
+                int film = 1 + (int) (Math.pow(random.nextDouble(), 3) * films);
+                rows.add(new Object[]{film, u});
+            }
+        }
+        batch(jdbc, "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)", rows);
+
+        rows.clear();
+        for (int u = 1; u <= users; u++) {
+            for (int k = 0; k < friendsPerUser; k++) {
+                int friend = 1 + random.nextInt(users);
+                if (friend != u) rows.add(new Object[]{u, friend, k % 2 == 0 ? "CONFIRMED" : "PENDING"});
+            }
+        }
+        batch(jdbc, "MERGE INTO friendships (user_id, friend_id, status) KEY (user_id, friend_id) VALUES (?, ?, ?)",
+                rows);
+
+        jdbc.execute("ALTER TABLE films ALTER COLUMN id RESTART WITH " + (films + 1));
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + (users + 1));
+    }
+
+    private static void batch(JdbcTemplate jdbc, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH, rows.size())));
+        }
+    }
+}
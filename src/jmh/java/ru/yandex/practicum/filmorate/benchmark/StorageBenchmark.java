@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Benchmark
+    public List<Film> popularTop10(SeededCatalog catalog) {
+        return catalog.filmStorage.getPopular(10);
+    }
+
+    @Benchmark
+    public List<Film> allFilmsPage(SeededCatalog catalog) {
+        int after = ThreadLocalRandom.current().nextInt(catalog.films);
+        return catalog.filmStorage.getAll(after, 100);
+    }
+
+    @Benchmark
+    public List<Film> allFilms(SeededCatalog catalog) {
+        return catalog.filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Optional<Film> filmByIdWithGenres(SeededCatalog catalog) {
+        return catalog.filmStorage.getById(1 + ThreadLocalRandom.current().nextInt(catalog.films));
+    }
+
+    @Benchmark
+    public List<User> commonFriends(SeededCatalog catalog) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return catalog.userStorage.getCommonFriends(1 + random.nextInt(catalog.users), 1 + random.nextInt(catalog.users));
+    }
+
+    // полный путь лайка через сервис: проверки существования, запись в film_likes, обновление индекса
+    @Benchmark
+    public void likeAndUnlike(SeededCatalog catalog) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(catalog.films);
+        int userId = 1 + random.nextInt(catalog.users);
+        catalog.filmService.addLike(filmId, userId);
+        catalog.filmService.removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Пропускная способность и перцентили задержки HTTP-запросов в режимах платформенных и виртуальных потоков.
+// Каждый поток JMH — отдельный клиент; число клиентов задаётся -t:
+// mvn -Pjmh test-compile exec:exec -Djmh.args="VirtualThreadsBenchmark -t 1000"
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(500)
+@State(Scope.Benchmark)
+public class VirtualThreadsBenchmark {
+    private static final int FILMS = 200;
+    private static final int USERS = 50;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ServletWebServerApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String base;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN",
+                        "logging.level.org.zalando.logbook=OFF")
+                .run();
+        base = "http://localhost:" + context.getWebServer().getPort();
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int popularTop10() throws Exception {
+        return send("GET", base + "/films/popular?count=10", null);
+    }
+
+    @Benchmark
+    public int filmById() throws Exception {
+        return send("GET", base + "/films/" + (1 + ThreadLocalRandom.current().nextInt(FILMS)), null);
+    }
+
+    private void seed() throws Exception {
+        for (int i = 1; i <= USERS; i++) {
+            send("POST", base + "/users", "{\"email\":\"u" + i + "@bench.ru\",\"login\":\"u" + i
+                    + "\",\"name\":\"u" + i + "\",\"birthday\":\"1990-01-01\"}");
+        }
+        for (int i = 1; i <= FILMS; i++) {
+            send("POST", base + "/films", "{\"name\":\"film " + i + "\",\"description\":\"d\","
+                    + "\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":1},\"genres\":[{\"id\":1}]}");
+        }
+        for (int u = 1; u <= USERS; u++) {
+            for (int f = u; f <= FILMS; f += u) {
+                send("PUT", base + "/films/" + f + "/like/" + u, "");
+            }
+        }
+    }
+
+    // ответ не 2xx — ошибка прогона, а не быстрый отказ, который попал бы в перцентили
+    private int send(String method, String uri, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri));
+        if (body == null) {
+            request.GET();
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        }
+        int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status / 100 != 2) {
+            throw new IllegalStateException(method + " " + uri + " вернул " + status);
+        }
+        return status;
+    }
+}
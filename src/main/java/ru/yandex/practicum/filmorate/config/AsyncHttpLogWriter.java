@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Пишет отформатированные записи Logbook в лог из отдельного потока.
+// Очередь ограничена: если она заполнена, запись отбрасывается и учитывается
+// в счётчике filmorate.http.log.dropped, а поток запроса не ждёт.
+@Slf4j(topic = "ru.yandex.practicum.filmorate.http")
+public class AsyncHttpLogWriter implements HttpLogWriter, AutoCloseable {
+    private final BlockingQueue<String> queue;
+    private final Counter dropped;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncHttpLogWriter(int capacity, MeterRegistry registry) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = registry.counter("filmorate.http.log.dropped");
+        registry.gaugeCollectionSize("filmorate.http.log.queue", Tags.empty(), queue);
+        this.worker = new Thread(this::drain, "http-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return log.isInfoEnabled();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        enqueue(request);
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        enqueue(response);
+    }
+
+    public double droppedCount() {
+        return dropped.count();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        // то, что осталось в очереди, дописываем в вызывающем потоке
+        String entry;
+        while ((entry = queue.poll()) != null) {
+            log.info(entry);
+        }
+    }
+
+    private void enqueue(String entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                log.info(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.core.DefaultSink;
+
+// Логирование HTTP-обменов через Logbook: выборка filmorate.http-log.sample-rate,
+// обрезка тел logbook.write.max-body-size, списки эндпоинтов logbook.predicate.include/exclude,
+// запись в лог — асинхронно через ограниченную очередь.
+@Configuration
+public class HttpLoggingConfig {
+
+    @Bean(destroyMethod = "close")
+    public AsyncHttpLogWriter asyncHttpLogWriter(@Value("${filmorate.http-log.queue-capacity:10000}") int capacity,
+                                                 MeterRegistry registry) {
+        return new AsyncHttpLogWriter(capacity, registry);
+    }
+
+    @Bean
+    public Sink sink(HttpLogFormatter formatter, AsyncHttpLogWriter writer,
+                     @Value("${filmorate.http-log.sample-rate:1.0}") double sampleRate) {
+        return new SamplingSink(new DefaultSink(formatter, writer), sampleRate);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+
+// Пропускает в delegate только долю обменов sampleRate. Решение принимается по id корреляции,
+// поэтому запрос и ответ одного обмена либо оба попадают в лог, либо оба нет,
+// а форматирование отброшенных обменов не выполняется вовсе.
+@RequiredArgsConstructor
+public class SamplingSink implements Sink {
+    private static final int SCALE = 10_000;
+
+    private final Sink delegate;
+    private final double sampleRate;
+
+    @Override
+    public boolean isActive() {
+        return sampleRate > 0 && delegate.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request) throws IOException {
+        if (sampled(precorrelation)) {
+            delegate.write(precorrelation, request);
+        }
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        if (sampled(correlation)) {
+            delegate.write(correlation, request, response);
+        }
+    }
+
+    private boolean sampled(Precorrelation precorrelation) {
+        if (sampleRate >= 1) return true;
+        return Math.floorMod(precorrelation.getId().hashCode(), SCALE) < sampleRate * SCALE;
+    }
+}
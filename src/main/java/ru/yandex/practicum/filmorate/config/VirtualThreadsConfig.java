@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Режим виртуальных потоков: запросы MVC (а значит и вызовы хранилищ) Spring Boot выполняет
+// на виртуальных потоках при spring.threads.virtual.enabled=true. Здесь к этому режиму
+// добавляется ограничение одновременных обращений к пулу соединений.
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingPostProcessor(
+            @Value("${filmorate.jdbc.acquire-timeout:5s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    // до старта пула Hikari возвращает -1, тогда действует его размер по умолчанию
+                    int permits = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                    log.info("Виртуальные потоки: обращения к пулу ограничены {} соединениями", permits);
+                    return new ConnectionLimitingDataSource(hikari, permits, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -2,8 +2,14 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.List;
@@ -19,6 +25,11 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> importFilms(@RequestBody List<Film> films) {
+        return filmService.importFilms(films);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.updateFilm(film);
@@ -29,11 +40,36 @@ public class FilmController {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(filmService::exportFilms);
+    }
+
+    @GetMapping(params = "limit")
+    public Page<Film> getFilmsPage(@RequestParam(required = false) String cursor, @RequestParam Integer limit) {
+        return filmService.getFilmsPage(cursor, limit);
+    }
+
+    // продолжение по курсору без limit — страница размера по умолчанию, а не весь список
+    @GetMapping(params = {"cursor", "!limit"})
+    public Page<Film> getFilmsPageByCursor(@RequestParam String cursor) {
+        return filmService.getFilmsPage(cursor, null);
+    }
+
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable int id) {
+    public Film getFilmById(@PathVariable int id, WebRequest request) {
+        // If-None-Match совпал — 304 без обращения к хранилищу
+        if (request.checkNotModified(filmService.getFilmEtag(id))) return null;
         return filmService.getFilmById(id);
     }
 
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return filmService.getSimilarFilms(id, count);
+    }
+
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable int id, @PathVariable int userId) {
         filmService.addLike(id, userId);
@@ -45,7 +81,24 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                  @RequestParam(required = false) Integer genreId,
+                                                  @RequestParam(required = false) Integer year,
+                                                  WebRequest request) {
+        if (request.checkNotModified(filmService.getPopularEtag(count, genreId, year))) return null;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(filmService.getPopularFilmsJson(count, genreId, year));
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                       @RequestParam(defaultValue = "10") int count) {
+        return filmService.getTrendingFilms(window, count);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        return filmService.searchFilms(q, limit);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -8,21 +10,31 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class GenreController {
+    // справочники меняются только при перезагрузке, клиенты перепроверяют их по ETag раз в сутки
+    private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
     private final GenreService genreService;
 
     @GetMapping
-    public List<Genre> getAll() {
-        return genreService.getAll();
+    public ResponseEntity<List<Genre>> getAll() {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .eTag(genreService.getEtag())
+                .body(genreService.getAll());
     }
 
     @GetMapping("/{id}")
-    public Genre getById(@PathVariable int id) {
-        return genreService.getById(id);
+    public ResponseEntity<Genre> getById(@PathVariable int id) {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .eTag(genreService.getEtag())
+                .body(genreService.getById(id));
     }
 }
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -8,21 +10,30 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/mpa")
 @RequiredArgsConstructor
 public class MpaController {
+    private static final CacheControl CACHE = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
     private final MpaService mpaService;
 
     @GetMapping
-    public List<Mpa> getAll() {
-        return mpaService.getAll();
+    public ResponseEntity<List<Mpa>> getAll() {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .eTag(mpaService.getEtag())
+                .body(mpaService.getAll());
     }
 
     @GetMapping("/{id}")
-    public Mpa getById(@PathVariable int id) {
-        return mpaService.getById(id);
+    public ResponseEntity<Mpa> getById(@PathVariable int id) {
+        return ResponseEntity.ok()
+                .cacheControl(CACHE)
+                .eTag(mpaService.getEtag())
+                .body(mpaService.getById(id));
     }
 }
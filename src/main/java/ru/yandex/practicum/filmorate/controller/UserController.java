@@ -3,7 +3,12 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -30,6 +35,24 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userService::exportUsers);
+    }
+
+    @GetMapping(params = "limit")
+    public Page<User> getUsersPage(@RequestParam(required = false) String cursor, @RequestParam Integer limit) {
+        return userService.getUsersPage(cursor, limit);
+    }
+
+    // продолжение по курсору без limit — страница размера по умолчанию, а не весь список
+    @GetMapping(params = {"cursor", "!limit"})
+    public Page<User> getUsersPageByCursor(@RequestParam String cursor) {
+        return userService.getUsersPage(cursor, null);
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable int id, @PathVariable int friendId) {
         userService.addFriend(id, friendId);
@@ -54,4 +77,19 @@ public class UserController {
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/path/{otherId}")
+    public List<User> getFriendPath(@PathVariable int id, @PathVariable int otherId) {
+        return userService.getFriendPath(id, otherId);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        return userService.getRecommendations(id, count);
+    }
 }
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Результат для одного элемента пакетного запроса: id созданной записи либо текст ошибки
+@Getter
+@AllArgsConstructor
+public class BatchItemResult {
+    private final int index;
+    private final Integer id;
+    private final String error;
+
+    public static BatchItemResult created(int index, int id) {
+        return new BatchItemResult(index, id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, null, error);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class Page<T> {
+    private final List<T> items;
+
+    // непрозрачный курсор следующей страницы, null — страница последняя
+    private final String next;
+}
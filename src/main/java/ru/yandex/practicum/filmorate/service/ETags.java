@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.service;
+
+// Слабые ETag из счётчиков версий. Метка запуска делает теги прошлых запусков недействительными:
+// счётчики версий после перезапуска начинаются заново.
+final class ETags {
+    private static final String BOOT = Long.toString(System.currentTimeMillis(), 36);
+
+    private ETags() {
+    }
+
+    static String weak(String resource, long... versions) {
+        StringBuilder tag = new StringBuilder("W/\"").append(resource).append('-').append(BOOT);
+        for (long version : versions) {
+            tag.append('-').append(version);
+        }
+        return tag.append('"').toString();
+    }
+}
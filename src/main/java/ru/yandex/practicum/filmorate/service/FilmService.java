@@ -1,29 +1,54 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.CoLikeIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingCounters;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FilmService {
-    private final @Qualifier("filmDbStorage") FilmStorage filmStorage;
-    private final MpaDbStorage mpaStorage;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+    private static final int SEARCH_DEFAULT_LIMIT = 10;
+    private static final int SEARCH_MAX_LIMIT = 100;
+
+    private final FilmStorage filmStorage;
     private final UserStorage userStorage;
-    private final GenreDbStorage genreStorage;
+    private final ReferenceCatalog catalog;
+    private final FilmVersions versions;
+    private final PopularFilmsCache popularCache;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Validator validator;
+    private final PlatformTransactionManager transactionManager;
 
     @Transactional
     public Film createFilm(Film film) {
@@ -31,10 +56,46 @@ public class FilmService {
         validateMpa(film);
         validateGenre(film);
         Film created = filmStorage.create(film);
+        versions.touch(created.getId());
         log.info("Добавлен фильм: {}", created);
         return created;
     }
 
+    // Все фильмы проверяются заранее по справочникам в памяти, корректные пишутся пачками;
+    // каждая порция из IMPORT_CHUNK_SIZE фильмов — отдельная транзакция, сбой откатывает только её.
+    public List<BatchItemResult> importFilms(List<Film> films) {
+        BatchItemResult[] results = new BatchItemResult[films.size()];
+        List<Integer> valid = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            String error = importError(films.get(i));
+            if (error == null) {
+                valid.add(i);
+            } else {
+                results[i] = BatchItemResult.failed(i, error);
+            }
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int created = 0;
+        for (int from = 0; from < valid.size(); from += IMPORT_CHUNK_SIZE) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + IMPORT_CHUNK_SIZE, valid.size()));
+            List<Film> batch = chunk.stream().map(films::get).toList();
+            try {
+                List<Integer> ids = tx.execute(status -> filmStorage.createAll(batch));
+                for (int j = 0; j < chunk.size(); j++) {
+                    results[chunk.get(j)] = BatchItemResult.created(chunk.get(j), ids.get(j));
+                    versions.touch(ids.get(j));
+                }
+                created += chunk.size();
+            } catch (RuntimeException e) {
+                log.warn("Не удалось сохранить порцию из {} фильмов", chunk.size(), e);
+                chunk.forEach(i -> results[i] = BatchItemResult.failed(i, "Не удалось сохранить фильм"));
+            }
+        }
+        log.info("Пакетная загрузка фильмов: добавлено {} из {}", created, films.size());
+        return Arrays.asList(results);
+    }
+
     @Transactional
     public Film updateFilm(Film film) {
         validateFilm(film);
@@ -43,6 +104,7 @@ public class FilmService {
         validateMpa(film);
         validateGenre(film);
         Film updated = filmStorage.update(film);
+        versions.touch(updated.getId());
         log.info("Обновлен фильм: {}", updated);
         return updated;
     }
@@ -52,27 +114,134 @@ public class FilmService {
         return filmStorage.getAll();
     }
 
+    public Page<Film> getFilmsPage(String cursor, Integer limit) {
+        int after = PageCursor.decode(cursor);
+        int size = PageCursor.limit(limit);
+        log.info("Запрошена страница фильмов после id {} размером {}", after, size);
+        List<Film> films = filmStorage.getAll(after, size);
+        String next = films.size() < size ? null : PageCursor.encode(films.get(films.size() - 1).getId());
+        return new Page<>(films, next);
+    }
+
+    // NDJSON: каждая запись сериализуется сразу после чтения из курсора
+    public void exportFilms(OutputStream out) {
+        log.info("Выгрузка всех фильмов потоком");
+        filmStorage.streamAll(film -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(film));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     public Film getFilmById(int id) {
         return filmStorage.getById(id)
                 .orElseThrow(() -> new NotFoundException("Фильм с id " + id + " не найден"));
     }
 
+    // теги считаются только по счётчикам версий, без обращения к хранилищу
+    public String getFilmEtag(int id) {
+        return ETags.weak("film" + id, versions.film(id), catalog.getVersion());
+    }
+
+    public String getPopularEtag(int count, Integer genreId, Integer year) {
+        PopularFilmsCache.Query query = popularQuery(count, genreId, year);
+        return ETags.weak("popular" + query.count() + "g" + genreId + "y" + year,
+                popularCache.version(query), catalog.getVersion());
+    }
+
     public void addLike(int filmId, int userId) {
         checkFilmsAndUsersExist(filmId, userId);
-        filmStorage.addLike(filmId, userId);
+        // повторный лайк ничего не меняет — версия фильма и ETag остаются прежними
+        if (filmStorage.addLike(filmId, userId)) versions.touch(filmId);
+        meterRegistry.counter("filmorate.likes", "action", "add").increment();
         log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
     }
 
     public void removeLike(int filmId, int userId) {
         checkFilmsAndUsersExist(filmId, userId);
-        filmStorage.removeLike(filmId, userId);
+        if (filmStorage.removeLike(filmId, userId)) versions.touch(filmId);
+        meterRegistry.counter("filmorate.likes", "action", "remove").increment();
         log.info("Пользователь {} убрал лайк с фильма {}", userId, filmId);
     }
 
     public List<Film> getPopularFilms(int count) {
-        if (count <= 0) count = 10;
         log.info("Запрошен топ-{} популярных фильмов", count);
-        return filmStorage.getPopular(count);
+        return popularCache.get(popularQuery(count, null, null), this::loadPopular).films();
+    }
+
+    // топ с необязательными фильтрами, уже сериализованный в JSON
+    public byte[] getPopularFilmsJson(int count, Integer genreId, Integer year) {
+        if (genreId != null && !catalog.hasGenre(genreId)) {
+            throw new NotFoundException("Жанр не найден: " + genreId);
+        }
+        log.info("Запрошен топ-{} популярных фильмов, жанр {}, год {}", count, genreId, year);
+        return popularCache.get(popularQuery(count, genreId, year), this::loadPopular).json();
+    }
+
+    public List<Film> searchFilms(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        int size = limit == null ? SEARCH_DEFAULT_LIMIT : Math.min(Math.max(limit, 1), SEARCH_MAX_LIMIT);
+        log.info("Поиск фильмов по запросу '{}', не больше {}", query, size);
+        return filmStorage.search(query, size);
+    }
+
+    public List<Film> getSimilarFilms(int id, int count) {
+        if (!filmStorage.exists(id)) throw new NotFoundException("Фильм с id " + id + " не найден");
+        int size = count <= 0 ? 10 : Math.min(count, CoLikeIndex.TOP_N);
+        log.info("Запрошены фильмы, похожие на {}", id);
+        return filmStorage.getSimilar(id, size);
+    }
+
+    public List<Film> getTrendingFilms(String window, int count) {
+        Duration duration = parseWindow(window);
+        if (count <= 0) count = 10;
+        log.info("Запрошен топ-{} фильмов в тренде за {}", count, duration);
+        return filmStorage.getTrending(duration, count);
+    }
+
+    private static Duration parseWindow(String window) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректное окно: " + window);
+        }
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(TrendingCounters.RETENTION) > 0) {
+            throw new ValidationException("Окно должно быть больше нуля и не длиннее " + TrendingCounters.RETENTION);
+        }
+        return duration;
+    }
+
+    private List<Film> loadPopular(PopularFilmsCache.Query query) {
+        return filmStorage.getPopular(query.count(), query.genreId(), query.year());
+    }
+
+    private static PopularFilmsCache.Query popularQuery(int count, Integer genreId, Integer year) {
+        return new PopularFilmsCache.Query(count <= 0 ? 10 : count, genreId, year);
+    }
+
+    private String importError(Film film) {
+        if (film == null) return "Фильм не может быть null";
+
+        String violations = validator.validate(film).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+        if (!violations.isEmpty()) return violations;
+
+        try {
+            validateFilm(film);
+            validateMpa(film);
+            validateGenre(film);
+        } catch (ValidationException | NotFoundException e) {
+            return e.getMessage();
+        }
+        return null;
     }
 
     private void validateFilm(Film film) {
@@ -85,8 +254,9 @@ public class FilmService {
 
     private void validateMpa(Film film) {
         int mpaId = film.getMpa().getId();
-        mpaStorage.findById(mpaId)
-                .orElseThrow(() -> new NotFoundException("Рейтинг MPA не найден: " + mpaId));
+        if (!catalog.hasMpa(mpaId)) {
+            throw new NotFoundException("Рейтинг MPA не найден: " + mpaId);
+        }
     }
 
     private void validateGenre(Film film) {
@@ -94,13 +264,14 @@ public class FilmService {
 
         film.getGenres().forEach(genre -> {
             int id = genre.getId();
-            genreStorage.findById(id)
-                    .orElseThrow(() -> new NotFoundException("Жанр не найден: " + id));
+            if (!catalog.hasGenre(id)) {
+                throw new NotFoundException("Жанр не найден: " + id);
+            }
         });
     }
 
     private void checkFilmsAndUsersExist(int filmId, int userId) {
-        filmStorage.getById(filmId).orElseThrow(() -> new NotFoundException("Фильм не найден: " + filmId));
-        userStorage.getById(userId).orElseThrow(() -> new NotFoundException("Пользователь не найден: " + userId));
+        if (!filmStorage.exists(filmId)) throw new NotFoundException("Фильм не найден: " + filmId);
+        if (!userStorage.exists(userId)) throw new NotFoundException("Пользователь не найден: " + userId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версии фильмов для ETag: своя у каждого фильма и общая, меняющаяся при любом изменении фильмов и лайков.
+// Внутри транзакции версия увеличивается только после коммита, иначе читатель мог бы
+// получить новый тег вместе со старыми данными и держать их в кэше до следующего изменения.
+@Component
+public class FilmVersions {
+    private final ConcurrentHashMap<Integer, AtomicLong> films = new ConcurrentHashMap<>();
+    private final AtomicLong global = new AtomicLong();
+
+    public void touch(int filmId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(filmId);
+                }
+            });
+        } else {
+            bump(filmId);
+        }
+    }
+
+    public long film(int filmId) {
+        AtomicLong version = films.get(filmId);
+        return version != null ? version.get() : 0;
+    }
+
+    public long global() {
+        return global.get();
+    }
+
+    private void bump(int filmId) {
+        films.computeIfAbsent(filmId, id -> new AtomicLong()).incrementAndGet();
+        global.incrementAndGet();
+    }
+}
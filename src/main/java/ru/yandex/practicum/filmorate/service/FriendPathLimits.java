@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Ограничения поиска цепочки друзей: наибольшая длина цепочки и число пользователей,
+// которых один запрос может посетить, прежде чем поиск прекратится
+@Component
+public record FriendPathLimits(@Value("${filmorate.friends.path.max-depth:6}") int maxDepth,
+                               @Value("${filmorate.friends.path.visit-budget:100000}") int visitBudget) {
+}
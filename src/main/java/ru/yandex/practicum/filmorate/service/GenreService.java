@@ -5,7 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
 
 import java.util.List;
 
@@ -13,15 +13,19 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class GenreService {
-    private final GenreDbStorage genreStorage;
+    private final ReferenceCatalog catalog;
 
     public List<Genre> getAll() {
         log.info("Запрошены все жанры");
-        return genreStorage.findAll();
+        return catalog.getGenres();
     }
 
     public Genre getById(int id) {
-        return genreStorage.findById(id)
+        return catalog.findGenre(id)
                 .orElseThrow(() -> new NotFoundException("Жанр не найден: " + id));
     }
+
+    public String getEtag() {
+        return ETags.weak("genres", catalog.getVersion());
+    }
 }
@@ -5,7 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
 
 import java.util.List;
 
@@ -13,15 +13,19 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class MpaService {
-    private final MpaDbStorage mpaStorage;
+    private final ReferenceCatalog catalog;
 
     public List<Mpa> getAll() {
         log.info("Запрошены все MPA");
-        return mpaStorage.findAll();
+        return catalog.getMpa();
     }
 
     public Mpa getById(int id) {
-        return mpaStorage.findById(id)
+        return catalog.findMpa(id)
                 .orElseThrow(() -> new NotFoundException("MPA не найден: " + id));
     }
+
+    public String getEtag() {
+        return ETags.weak("mpa", catalog.getVersion());
+    }
 }
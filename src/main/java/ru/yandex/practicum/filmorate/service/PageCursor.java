@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Курсор keyset-пагинации: id последней отданной записи, закодированный в base64url.
+final class PageCursor {
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 500;
+
+    private static final String PREFIX = "after:";
+
+    private PageCursor() {
+    }
+
+    static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return 0;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) throw new IllegalArgumentException(raw);
+            int id = Integer.parseInt(raw.substring(PREFIX.length()));
+            if (id < 0) throw new IllegalArgumentException(raw);
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор страницы: " + cursor);
+        }
+    }
+
+    static int limit(Integer requested) {
+        if (requested == null) return DEFAULT_LIMIT;
+        if (requested <= 0) throw new ValidationException("Размер страницы должен быть положительным");
+        return Math.min(requested, MAX_LIMIT);
+    }
+}
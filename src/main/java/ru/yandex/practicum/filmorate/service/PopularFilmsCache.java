@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.FilmCopies;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+// Кэш топа популярных фильмов по запросу (count, жанр, год): список и готовый JSON.
+// Запись действительна, пока не изменилась общая версия фильмов (лайки, обновления) и версия справочников.
+// При max-staleness > 0 устаревшая запись отдаётся ещё столько времени после загрузки.
+// Число запросов ограничено max-entries с вытеснением редких (W-TinyLFU); фильмы записи наружу отдаются копиями.
+@Component
+public class PopularFilmsCache {
+    private final FilmVersions versions;
+    private final ReferenceCatalog catalog;
+    private final ObjectMapper objectMapper;
+    private final long maxStalenessNanos;
+    private final Counter hits;
+    private final Counter misses;
+    private final Cache<Query, Entry> entries;
+
+    public PopularFilmsCache(FilmVersions versions,
+                             ReferenceCatalog catalog,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${filmorate.popular.cache.max-staleness:0s}") Duration maxStaleness,
+                             @Value("${filmorate.popular.cache.max-entries:100}") int maxEntries) {
+        this.versions = versions;
+        this.catalog = catalog;
+        this.objectMapper = objectMapper;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        this.hits = meterRegistry.counter("filmorate.popular.cache", "result", "hit");
+        this.misses = meterRegistry.counter("filmorate.popular.cache", "result", "miss");
+    }
+
+    public Entry get(Query query, Function<Query, List<Film>> loader) {
+        Entry entry = servable(query);
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+
+        // версии читаются до загрузки: изменение во время запроса сделает запись устаревшей
+        long version = versions.global();
+        long catalogVersion = catalog.getVersion();
+        List<Film> films = List.copyOf(loader.apply(query));
+        Entry loaded = new Entry(version, catalogVersion, System.nanoTime(), films, serialize(films));
+        entries.asMap().merge(query, loaded, (old, fresh) -> old.version() > fresh.version() ? old : fresh);
+        return loaded;
+    }
+
+    // версия данных, которые будут отданы по запросу, — для ETag
+    public long version(Query query) {
+        Entry entry = servable(query);
+        return entry != null ? entry.version() : versions.global();
+    }
+
+    private Entry servable(Query query) {
+        Entry entry = entries.getIfPresent(query);
+        if (entry == null || entry.catalogVersion() != catalog.getVersion()) return null;
+        if (entry.version() == versions.global()) return entry;
+        return System.nanoTime() - entry.loadedAt() < maxStalenessNanos ? entry : null;
+    }
+
+    private byte[] serialize(List<Film> films) {
+        try {
+            return objectMapper.writeValueAsBytes(films);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать топ фильмов", e);
+        }
+    }
+
+    // genreId и year — null, если фильтра нет
+    public record Query(int count, Integer genreId, Integer year) {
+    }
+
+    public record Entry(long version, long catalogVersion, long loadedAt, List<Film> films, byte[] json) {
+        // запись общая для всех запросов — каждый получает свои экземпляры Film
+        @Override
+        public List<Film> films() {
+            return films.stream().map(FilmCopies::copy).toList();
+        }
+    }
+}
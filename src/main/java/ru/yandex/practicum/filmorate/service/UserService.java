@@ -1,21 +1,34 @@
 package ru.yandex.practicum.filmorate.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class UserService {
-    private final @Qualifier("userDbStorage") UserStorage userStorage;
+    private static final int MAX_SUGGESTIONS = 100;
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final FriendPathLimits pathLimits;
 
     public User createUser(User user) {
         validateUser(user);
@@ -36,6 +49,28 @@ public class UserService {
         return userStorage.getAll();
     }
 
+    public Page<User> getUsersPage(String cursor, Integer limit) {
+        int after = PageCursor.decode(cursor);
+        int size = PageCursor.limit(limit);
+        log.info("Запрошена страница пользователей после id {} размером {}", after, size);
+        List<User> users = userStorage.getAll(after, size);
+        String next = users.size() < size ? null : PageCursor.encode(users.get(users.size() - 1).getId());
+        return new Page<>(users, next);
+    }
+
+    // NDJSON: каждая запись сериализуется сразу после чтения из курсора
+    public void exportUsers(OutputStream out) {
+        log.info("Выгрузка всех пользователей потоком");
+        userStorage.streamAll(user -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(user));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     public void addFriend(int id, int friendId) {
         if (id == friendId) {
             throw new ValidationException("Нельзя добавить самого себя в друзья");
@@ -43,6 +78,7 @@ public class UserService {
         checkUsersExist(id, friendId);
 
         userStorage.addFriend(id, friendId);
+        meterRegistry.counter("filmorate.friends", "action", "add").increment();
         log.info("Пользователь {} отправил заявку в друзья пользователю {}", id, friendId);
     }
 
@@ -50,6 +86,7 @@ public class UserService {
         checkUsersExist(id, friendId);
 
         userStorage.confirmFriend(id, friendId);
+        meterRegistry.counter("filmorate.friends", "action", "confirm").increment();
         log.info("Пользователь {} подтвердил заявку от пользователя {}", friendId, id);
     }
 
@@ -60,11 +97,12 @@ public class UserService {
         checkUsersExist(id, friendId);
 
         userStorage.removeFriend(id, friendId);
+        meterRegistry.counter("filmorate.friends", "action", "remove").increment();
         log.info("Пользователь {} удалил из друзей пользователя {}", id, friendId);
     }
 
     public List<User> getFriends(int id) {
-        userStorage.getById(id).orElseThrow(() -> new NotFoundException("Пользователь не найден: " + id));
+        checkUserExists(id);
         return userStorage.getFriends(id);
     }
 
@@ -73,6 +111,30 @@ public class UserService {
         return userStorage.getCommonFriends(id, friendId);
     }
 
+    public List<User> getFriendSuggestions(int id, int count) {
+        checkUserExists(id);
+        if (count <= 0) count = 10;
+        log.info("Запрошены возможные друзья пользователя {}", id);
+        return userStorage.getFriendSuggestions(id, Math.min(count, MAX_SUGGESTIONS));
+    }
+
+    public List<User> getFriendPath(int id, int otherId) {
+        checkUsersExist(id, otherId);
+        List<User> path = userStorage.getFriendPath(id, otherId, pathLimits.maxDepth(), pathLimits.visitBudget());
+        if (path.isEmpty()) {
+            throw new NotFoundException("Цепочка друзей от " + id + " до " + otherId + " не найдена");
+        }
+        log.info("Найдена цепочка друзей от {} до {} из {} пользователей", id, otherId, path.size());
+        return path;
+    }
+
+    public List<Film> getRecommendations(int id, int count) {
+        checkUserExists(id);
+        if (count <= 0) count = 10;
+        log.info("Запрошены рекомендации фильмов для пользователя {}", id);
+        return filmStorage.getRecommendations(id, count);
+    }
+
     private void validateUser(User user) {
         if (user == null) {
             log.warn("Ошибка валидации тело запроса (user) равно null");
@@ -84,8 +146,11 @@ public class UserService {
     }
 
     private void checkUsersExist(int id, int friendId) {
-        userStorage.getById(id).orElseThrow(() -> new NotFoundException("Пользователь не найден: " + id));
-        userStorage.getById(friendId).orElseThrow(() -> new NotFoundException("Пользователь не найден: " + friendId));
+        checkUserExists(id);
+        checkUserExists(friendId);
+    }
 
+    private void checkUserExists(int id) {
+        if (!userStorage.exists(id)) throw new NotFoundException("Пользователь не найден: " + id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Битовая карта существующих id. id выдаются подряд, поэтому карта плотная: бит на запись.
+// Запись идёт под блокировкой (в том числе при росте массива), чтение — без неё.
+public class IdPresenceIndex {
+    private volatile AtomicLongArray words = new AtomicLongArray(64);
+
+    public boolean contains(int id) {
+        if (id < 0) return false;
+        AtomicLongArray current = words;
+        int word = id >>> 6;
+        return word < current.length() && (current.get(word) & (1L << id)) != 0;
+    }
+
+    public synchronized void add(int id) {
+        if (id < 0) return;
+        int word = id >>> 6;
+        AtomicLongArray current = words;
+        if (word >= current.length()) {
+            AtomicLongArray grown = new AtomicLongArray(Math.max(word + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+            current = grown;
+        }
+        current.set(word, current.get(word) | (1L << id));
+    }
+
+    public synchronized void remove(int id) {
+        AtomicLongArray current = words;
+        int word = id >>> 6;
+        if (id < 0 || word >= current.length()) return;
+        current.set(word, current.get(word) & ~(1L << id));
+    }
+
+    // id виден сразу, а при откате текущей транзакции убирается, чтобы в карте не оставалось несуществующих записей
+    public void addCreated(int id) {
+        add(id);
+        TransactionHooks.afterRollback(() -> remove(id));
+    }
+
+    public synchronized void clear() {
+        words = new AtomicLongArray(64);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Карта long -> long без боксинга: счётчики по id фильмов и пользователей, состояние пар (фильм, пользователь).
+// Открытая адресация с линейным пробированием; удаление сдвигает хвост цепочки назад, без надгробий.
+// 0 в keys — пустая ячейка: id в БД начинаются с 1, поэтому ни id, ни ключ пары не бывают нулевыми.
+// Не потокобезопасна: синхронизацию обеспечивает владелец.
+public final class LongLongMap {
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongMap() {
+        this(4);
+    }
+
+    public LongLongMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2) * 2;
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    // ключ пары двух id
+    public static long pair(int first, int second) {
+        return ((long) first << 32) | (second & 0xffffffffL);
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    public void put(long key, long value) {
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    // счётчик со знаком; обнулившийся ключ удаляется
+    public long add(long key, long delta) {
+        long updated = get(key, 0) + delta;
+        if (updated == 0) {
+            remove(key);
+        } else {
+            put(key, updated);
+        }
+        return updated;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[find(key)] != 0;
+    }
+
+    public long get(long key, long missing) {
+        int slot = find(key);
+        return keys[slot] != 0 ? values[slot] : missing;
+    }
+
+    public void remove(long key) {
+        int slot = find(key);
+        if (keys[slot] == 0) return;
+        size--;
+
+        // сдвиг назад: элементы за удалённым, которые не стоят в своей «родной» ячейке, переезжают ближе к ней
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = home(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) visitor.accept(keys[i], values[i]);
+        }
+    }
+
+    // не больше limit ключей с положительным значением: больше значение, затем меньше ключ;
+    // один проход со вставкой в отсортированный буфер
+    public long[] top(int limit) {
+        long[] best = new long[Math.max(0, Math.min(limit, size))];
+        long[] weights = new long[best.length];
+        int found = 0;
+        for (int i = 0; i < keys.length && best.length > 0; i++) {
+            if (keys[i] == 0 || values[i] <= 0) continue;
+            long key = keys[i];
+            long weight = values[i];
+            if (found == best.length && !better(weight, key, weights[found - 1], best[found - 1])) continue;
+
+            int at = found == best.length ? found - 1 : found++;
+            while (at > 0 && better(weight, key, weights[at - 1], best[at - 1])) {
+                best[at] = best[at - 1];
+                weights[at] = weights[at - 1];
+                at--;
+            }
+            best[at] = key;
+            weights[at] = weight;
+        }
+        return found == best.length ? best : Arrays.copyOf(best, found);
+    }
+
+    // то же для карт, ключи которых — id (int)
+    public int[] topIds(int limit) {
+        long[] best = top(limit);
+        int[] ids = new int[best.length];
+        for (int i = 0; i < best.length; i++) {
+            ids[i] = (int) best[i];
+        }
+        return ids;
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void accept(long key, long value);
+    }
+
+    private static boolean better(long weight, long key, long otherWeight, long otherKey) {
+        return weight > otherWeight || (weight == otherWeight && key < otherKey);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = home(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 33) & (keys.length - 1);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
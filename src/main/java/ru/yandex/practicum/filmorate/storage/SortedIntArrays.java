@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Операции над отсортированными массивами int без дублей — компактное множество id без боксинга.
+// Массивы не изменяются на месте: при изменении возвращается новый массив (copy-on-write),
+// поэтому читатели могут работать с ранее полученной ссылкой без блокировок.
+public final class SortedIntArrays {
+    public static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    public static boolean contains(int[] array, int value) {
+        return Arrays.binarySearch(array, value) >= 0;
+    }
+
+    // тот же массив, если значение уже есть
+    public static int[] insert(int[] array, int value) {
+        int pos = Arrays.binarySearch(array, value);
+        if (pos >= 0) return array;
+
+        int at = -pos - 1;
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        return result;
+    }
+
+    // тот же массив, если значения нет
+    public static int[] remove(int[] array, int value) {
+        int pos = Arrays.binarySearch(array, value);
+        if (pos < 0) return array;
+        if (array.length == 1) return EMPTY;
+
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        System.arraycopy(array, pos + 1, result, pos, array.length - pos - 1);
+        return result;
+    }
+
+    // пересечение слиянием за O(a + b)
+    public static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
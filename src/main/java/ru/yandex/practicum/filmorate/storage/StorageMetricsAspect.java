@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Время и число строк каждого вызова FilmStorage/UserStorage (и JDBC-, и in-memory-реализаций):
+// filmorate.storage.query{storage, method, outcome} и filmorate.storage.rows{storage, method}.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+    private final MeterRegistry registry;
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.storage.film.FilmStorage+.*(..)) || " +
+            "execution(public * ru.yandex.practicum.filmorate.storage.user.UserStorage+.*(..))")
+    public Object measure(ProceedingJoinPoint call) throws Throwable {
+        String storage = AopUtils.getTargetClass(call.getTarget()).getSimpleName();
+        String method = call.getSignature().getName();
+        String outcome = "success";
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            Object result = call.proceed();
+            int rows = rows(result);
+            if (rows >= 0) {
+                DistributionSummary.builder("filmorate.storage.rows")
+                        .tags("storage", storage, "method", method)
+                        .register(registry)
+                        .record(rows);
+            }
+            return result;
+        } catch (Throwable e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("filmorate.storage.query")
+                    .tags("storage", storage, "method", method, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    private static int rows(Object result) {
+        if (result instanceof Collection<?> collection) return collection.size();
+        if (result instanceof Optional<?> optional) return optional.isPresent() ? 1 : 0;
+        return -1;
+    }
+}
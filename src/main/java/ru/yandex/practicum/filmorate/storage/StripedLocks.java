@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Блокировки по полосам: изменения одного ключа (id или пары id) всегда идут под одной из STRIPES блокировок.
+// ReentrantLock, а не synchronized: ожидающий виртуальный поток не занимает несущий.
+public final class StripedLocks {
+    public static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public StripedLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock of(long key) {
+        return locks[stripe(key)];
+    }
+
+    // номер полосы — для данных, которые разложены по полосам вместе с блокировками
+    public static int stripe(long key) {
+        return Math.floorMod(Long.hashCode(key), STRIPES);
+    }
+}
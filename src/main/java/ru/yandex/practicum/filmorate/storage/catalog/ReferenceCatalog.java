@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.storage.catalog;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Справочники жанров и рейтингов MPA: читаются из БД один раз и хранятся неизменяемым снимком.
+// Наружу отдаются копии, чтобы сеттеры Genre/Mpa не могли испортить снимок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReferenceCatalog {
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), List.of(), Map.of());
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void reload() {
+        List<Genre> genres = List.copyOf(genreStorage.findAll());
+        List<Mpa> mpa = List.copyOf(mpaStorage.findAll());
+        snapshot = new Snapshot(
+                genres,
+                genres.stream().collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity())),
+                mpa,
+                mpa.stream().collect(Collectors.toUnmodifiableMap(Mpa::getId, Function.identity()))
+        );
+        version.incrementAndGet();
+        log.info("Загружены справочники: жанров {}, рейтингов MPA {}", genres.size(), mpa.size());
+    }
+
+    // меняется при каждой перезагрузке справочников
+    public long getVersion() {
+        return version.get();
+    }
+
+    public List<Genre> getGenres() {
+        return snapshot.genres().stream().map(ReferenceCatalog::copyGenre).toList();
+    }
+
+    public Optional<Genre> findGenre(int id) {
+        return Optional.ofNullable(snapshot.genresById().get(id)).map(ReferenceCatalog::copyGenre);
+    }
+
+    public boolean hasGenre(int id) {
+        return snapshot.genresById().containsKey(id);
+    }
+
+    public List<Mpa> getMpa() {
+        return snapshot.mpa().stream().map(ReferenceCatalog::copyMpa).toList();
+    }
+
+    public Optional<Mpa> findMpa(int id) {
+        return Optional.ofNullable(snapshot.mpaById().get(id)).map(ReferenceCatalog::copyMpa);
+    }
+
+    public boolean hasMpa(int id) {
+        return snapshot.mpaById().containsKey(id);
+    }
+
+    private static Genre copyGenre(Genre source) {
+        Genre g = new Genre();
+        g.setId(source.getId());
+        g.setName(source.getName());
+        return g;
+    }
+
+    private static Mpa copyMpa(Mpa source) {
+        Mpa m = new Mpa();
+        m.setId(source.getId());
+        m.setName(source.getName());
+        return m;
+    }
+
+    private record Snapshot(List<Genre> genres, Map<Integer, Genre> genresById,
+                            List<Mpa> mpa, Map<Integer, Mpa> mpaById) {
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// «Кто лайкнул этот фильм, лайкал и…»: для каждого фильма — сколько пользователей лайкнули и его, и соседа.
+// Счётчики соседей хранятся в LongLongMap (открытая адресация на массивах, без боксинга),
+// поверх неё — готовый список TOP_N лучших соседей, который пересчитывается только после изменений.
+// Изменения приходят из LikeMatrix под блокировкой полосы пользователя, поэтому лайки и снятия лайков
+// одного пользователя применяются в том же порядке, что и к матрице; счётчики со знаком, без обрезки нулём.
+// Память ограничена с двух сторон: пары считаются только у пользователей с не более чем MAX_USER_LIKES лайками,
+// а у каждого фильма хранится не больше MAX_TRACKED соседей — при переполнении самые слабые отбрасываются.
+// Поэтому счётчики в хвосте приблизительные, но лидеры, которые и попадают в топ, отслеживаются точно.
+public class CoLikeIndex {
+    public static final int TOP_N = 100;
+    // лайки такого пользователя почти ни о чём не говорят, а пар у него — квадрат от их числа
+    public static final int MAX_USER_LIKES = 300;
+    static final int MAX_TRACKED = TOP_N * 4;
+    private static final int TRIMMED = TOP_N * 2;
+
+    private final ConcurrentHashMap<Integer, Neighbours> films = new ConcurrentHashMap<>();
+
+    // before — фильмы пользователя до лайка
+    public void liked(int filmId, int[] before) {
+        if (before.length < MAX_USER_LIKES) {
+            change(filmId, before, 1);
+        } else if (before.length == MAX_USER_LIKES) {
+            // пользователь перешёл порог: его пары больше не учитываются
+            changeAll(before, -1);
+        }
+    }
+
+    // after — фильмы пользователя после снятия лайка
+    public void unliked(int filmId, int[] after) {
+        if (after.length < MAX_USER_LIKES) {
+            change(filmId, after, -1);
+        } else if (after.length == MAX_USER_LIKES) {
+            // пользователь вернулся под порог: его пары снова учитываются
+            changeAll(after, 1);
+        }
+    }
+
+    public List<Integer> similar(int filmId, int count) {
+        Neighbours neighbours = films.get(filmId);
+        if (neighbours == null) return List.of();
+        int[] top = neighbours.top();
+        List<Integer> ids = new ArrayList<>(Math.min(count, top.length));
+        for (int i = 0; i < top.length && i < count; i++) {
+            ids.add(top[i]);
+        }
+        return ids;
+    }
+
+    // удалённый фильм пропадает и из списков соседей
+    public void removeFilm(int filmId) {
+        Neighbours removed = films.remove(filmId);
+        if (removed == null) return;
+        for (int other : removed.ids()) {
+            Neighbours neighbours = films.get(other);
+            if (neighbours != null) neighbours.drop(filmId);
+        }
+    }
+
+    public void clear() {
+        films.clear();
+    }
+
+    private void change(int filmId, int[] otherFilms, int delta) {
+        for (int other : otherFilms) {
+            if (other == filmId) continue;
+            neighbours(filmId).add(other, delta);
+            neighbours(other).add(filmId, delta);
+        }
+    }
+
+    private void changeAll(int[] userFilms, int delta) {
+        for (int i = 0; i < userFilms.length; i++) {
+            for (int j = i + 1; j < userFilms.length; j++) {
+                neighbours(userFilms[i]).add(userFilms[j], delta);
+                neighbours(userFilms[j]).add(userFilms[i], delta);
+            }
+        }
+    }
+
+    private Neighbours neighbours(int filmId) {
+        return films.computeIfAbsent(filmId, id -> new Neighbours());
+    }
+
+    // счётчики соседей одного фильма и закэшированный топ, сбрасываемый при изменении
+    private static final class Neighbours {
+        private LongLongMap counts = new LongLongMap();
+        private volatile int[] top;
+
+        synchronized void add(int filmId, int delta) {
+            counts.add(filmId, delta);
+            if (counts.size() > MAX_TRACKED) trim();
+            top = null;
+        }
+
+        // оставляем TRIMMED сильнейших соседей; отрицательные и нулевые счётчики уходят первыми
+        private void trim() {
+            LongLongMap kept = new LongLongMap(TRIMMED);
+            for (long id : counts.top(TRIMMED)) {
+                kept.put(id, counts.get(id, 0));
+            }
+            counts = kept;
+        }
+
+        synchronized void drop(int filmId) {
+            counts.remove(filmId);
+            top = null;
+        }
+
+        synchronized int[] ids() {
+            int[] ids = new int[counts.size()];
+            int[] size = {0};
+            counts.forEach((id, count) -> ids[size[0]++] = (int) id);
+            return ids;
+        }
+
+        int[] top() {
+            int[] cached = top;
+            if (cached != null) return cached;
+            synchronized (this) {
+                if (top == null) top = counts.topIds(TOP_N);
+                return top;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+// Кэш getById для FilmDbStorage с вытеснением по размеру (W-TinyLFU). Отсутствующие фильмы не кэшируются.
+// Сам кэшированный Film наружу не попадает — каждый вызов получает копию.
+// Запись помнит версию справочников: после их перезагрузки фильм читается заново с новыми названиями жанров и MPA.
+// Метрики cache.gets/cache.evictions{cache=films} регистрируются через MeterBinder.
+@Component
+@Profile("!in-memory")
+public class FilmCache implements MeterBinder {
+    private final ReferenceCatalog catalog;
+    private final Cache<Integer, Entry> films;
+
+    public FilmCache(ReferenceCatalog catalog, @Value("${filmorate.films.cache.max-size:10000}") long maxSize) {
+        this.catalog = catalog;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Film> get(int id, IntFunction<Optional<Film>> loader) {
+        // версия читается до загрузки: перезагрузка справочников во время запроса сделает запись устаревшей
+        long catalogVersion = catalog.getVersion();
+        // внутри транзакции прочитанное может быть её незакоммиченными данными — в кэш это не кладётся
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            Entry cached = films.getIfPresent(id);
+            return cached != null && cached.catalogVersion() >= catalogVersion
+                    ? Optional.of(FilmCopies.copy(cached.film()))
+                    : loader.apply(id);
+        }
+        Entry cached = films.get(id, key -> load(key, loader, catalogVersion));
+        if (cached != null && cached.catalogVersion() < catalogVersion) {
+            cached = films.asMap().compute(id, (key, current) ->
+                    current != null && current.catalogVersion() >= catalogVersion
+                            ? current
+                            : load(key, loader, catalogVersion));
+        }
+        return Optional.ofNullable(cached).map(entry -> FilmCopies.copy(entry.film()));
+    }
+
+    // Сбрасывает запись сразу и ещё раз по завершении транзакции: пока она идёт, другие запросы
+    // могут снова закэшировать прежнюю закоммиченную версию.
+    public void invalidate(int id) {
+        films.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    films.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        films.invalidateAll();
+    }
+
+    private static Entry load(int id, IntFunction<Optional<Film>> loader, long catalogVersion) {
+        return loader.apply(id).map(film -> new Entry(film, catalogVersion)).orElse(null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+    }
+
+    private record Entry(Film film, long catalogVersion) {
+    }
+}
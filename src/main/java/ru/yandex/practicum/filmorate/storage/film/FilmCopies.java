@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// Глубокие копии фильмов для хранилищ, которые держат Film у себя и не должны отдавать его наружу
+public final class FilmCopies {
+
+    private FilmCopies() {
+    }
+
+    public static Film copy(Film source) {
+        Film f = new Film();
+        f.setId(source.getId());
+        f.setName(source.getName());
+        f.setDescription(source.getDescription());
+        f.setReleaseDate(source.getReleaseDate());
+        f.setDuration(source.getDuration());
+        if (source.getMpa() != null) {
+            Mpa m = new Mpa();
+            m.setId(source.getMpa().getId());
+            m.setName(source.getMpa().getName());
+            f.setMpa(m);
+        }
+        Set<Genre> genres = new LinkedHashSet<>();
+        if (source.getGenres() != null) {
+            source.getGenres().stream().filter(Objects::nonNull).forEach(g -> {
+                Genre copy = new Genre();
+                copy.setId(g.getId());
+                copy.setName(g.getName());
+                genres.add(copy);
+            });
+        }
+        f.setGenres(genres);
+        return f;
+    }
+}
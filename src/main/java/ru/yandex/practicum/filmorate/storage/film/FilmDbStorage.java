@@ -1,26 +1,65 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.IdPresenceIndex;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
+@Slf4j
 @Repository("filmDbStorage")
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final ReferenceCatalog catalog;
+    private final LikeWriteBuffer likeBuffer;
+    private final FilmCache cache;
+    private final EventJournal journal;
+    private final FilmPopularityIndex popularity = new FilmPopularityIndex();
+    private final PopularityPartitions partitions = new PopularityPartitions();
+    private final TrendingCounters trending = new TrendingCounters();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final LikeMatrix likeMatrix = new LikeMatrix();
+    private final IdPresenceIndex knownIds = new IdPresenceIndex();
+    // лайк и снятие лайка одной пары идут по очереди: запись в БД и журнал ложатся в одном порядке
+    private final StripedLocks likeLocks = new StripedLocks();
 
     private static final RowMapper<Film> FILM_ROW_MAPPER = (rs, rn) -> {
         Film f = new Film();
@@ -45,19 +84,73 @@ public class FilmDbStorage implements FilmStorage {
 
         jdbc.update(con -> {
             PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, film.getName());
-            ps.setString(2, film.getDescription());
-            ps.setDate(3, film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null);
-            ps.setInt(4, film.getDuration());
-            ps.setInt(5, film.getMpa().getId());
+            setFilm(ps, film);
             return ps;
         }, keyHolder);
         film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
-        saveGenres(film.getId(), film.getGenres());
+        insertGenres(film.getId(), film.getGenres());
+        // индексы видят фильм сразу, как и при обновлении; если транзакция откатится, он из них убирается
+        knownIds.addCreated(film.getId());
+        popularity.put(film.getId(), 0);
+        partitions.place(film, 0);
+        searchIndex.put(film);
+        int id = film.getId();
+        TransactionHooks.afterRollback(() -> unindex(id));
         return getById(film.getId())
                 .orElseThrow(() -> new NotFoundException("Фильм не найден: " + film.getId()));
     }
 
+    @Override
+    public List<Integer> createAll(List<Film> films) {
+        if (films.isEmpty()) return new ArrayList<>();
+
+        // одна пачка INSERT для фильмов и одна для их жанров, без чтения созданных записей
+        String sql = "INSERT INTO films(name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFilm(ps, films.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new IllegalStateException("Получено ключей " + keys.size() + " для " + films.size() + " фильмов");
+        }
+        List<Integer> created = new ArrayList<>(films.size());
+        List<int[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            int id = ((Number) keys.get(i).values().iterator().next()).intValue();
+            films.get(i).setId(id);
+            created.add(id);
+            genreIds(films.get(i).getGenres()).forEach(genreId -> genreRows.add(new int[]{id, genreId}));
+        }
+
+        if (!genreRows.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                    genreRows, genreRows.size(), (ps, row) -> {
+                        ps.setInt(1, row[0]);
+                        ps.setInt(2, row[1]);
+                    });
+        }
+        // пакет в транзакции своих фильмов не читает, поэтому в индексы они попадают только после коммита:
+        // откат порции не оставляет в них несуществующих id
+        TransactionHooks.afterCommit(() -> films.forEach(film -> {
+            knownIds.add(film.getId());
+            popularity.put(film.getId(), 0);
+            partitions.place(film, 0);
+            searchIndex.put(film);
+        }));
+        return created;
+    }
+
     @Override
     public Film update(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
@@ -71,13 +164,36 @@ public class FilmDbStorage implements FilmStorage {
                 film.getId()
         );
         if (updated == 0) throw new NotFoundException("Фильм не найден: " + film.getId());
-        saveGenres(film.getId(), film.getGenres());
+        updateGenres(film.getId(), film.getGenres());
+        cache.invalidate(film.getId());
+        partitions.place(film);
+        searchIndex.put(film);
+        reindexOnRollback(film.getId());
         return getById(film.getId())
                 .orElseThrow(() -> new NotFoundException("Фильм после обновления не найден: " + film.getId()));
     }
 
+    // индексы меняются сразу, чтобы транзакция видела свои изменения; при откате запись фильма
+    // перечитывается из БД (afterCompletion ещё может читать через соединение транзакции) и индексируется заново
+    private void reindexOnRollback(int filmId) {
+        TransactionHooks.afterRollback(() -> {
+            Optional<Film> committed = loadById(filmId);
+            if (committed.isPresent()) {
+                partitions.place(committed.get());
+                searchIndex.put(committed.get());
+            } else {
+                partitions.remove(filmId);
+                searchIndex.remove(filmId);
+            }
+        });
+    }
+
     @Override
     public Optional<Film> getById(int id) {
+        return cache.get(id, this::loadById);
+    }
+
+    private Optional<Film> loadById(int id) {
         String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, " +
                 "m.name AS mpa_name FROM films f " +
                 "JOIN mpa m ON f.mpa_id = m.id " +
@@ -93,13 +209,20 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public List<Film> getAll() {
+    public boolean exists(int id) {
+        return knownIds.contains(id);
+    }
+
+    @Override
+    public List<Film> getAll(int afterId, int limit) {
         String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, " +
                 "m.name AS mpa_name FROM films f " +
                 "JOIN mpa m ON f.mpa_id = m.id " +
-                "ORDER BY f.id";
+                "WHERE f.id > ? " +
+                "ORDER BY f.id " +
+                "LIMIT ?";
 
-        List<Film> films = jdbc.query(sql, FILM_ROW_MAPPER);
+        List<Film> films = jdbc.query(sql, FILM_ROW_MAPPER, afterId, limit);
         if (films.isEmpty()) return films;
 
         List<Integer> ids = films.stream().map(Film::getId).toList();
@@ -110,35 +233,299 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        String sql = "MERGE INTO film_likes (film_id, user_id) KEY (film_id, user_id) VALUES (?, ?)";
-        jdbc.update(sql, filmId, userId);
+    public void streamAll(Consumer<Film> action) {
+        String filmsSql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, " +
+                "m.name AS mpa_name FROM films f " +
+                "JOIN mpa m ON f.mpa_id = m.id " +
+                "ORDER BY f.id";
+        String genresSql = "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+
+        // два курсора в одном порядке: жанры подмешиваются к фильму слиянием, без промежуточной карты
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement filmsPs = con.prepareStatement(filmsSql,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 PreparedStatement genresPs = con.prepareStatement(genresSql,
+                         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                filmsPs.setFetchSize(STREAM_FETCH_SIZE);
+                genresPs.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet films = filmsPs.executeQuery();
+                     ResultSet genres = genresPs.executeQuery()) {
+                    boolean hasGenre = genres.next();
+                    int rowNum = 0;
+                    while (films.next()) {
+                        Film film = FILM_ROW_MAPPER.mapRow(films, rowNum++);
+                        Set<Genre> filmGenres = new LinkedHashSet<>();
+                        while (hasGenre && genres.getInt("film_id") < film.getId()) {
+                            hasGenre = genres.next();
+                        }
+                        while (hasGenre && genres.getInt("film_id") == film.getId()) {
+                            catalog.findGenre(genres.getInt("genre_id")).ifPresent(filmGenres::add);
+                            hasGenre = genres.next();
+                        }
+                        film.setGenres(filmGenres);
+                        action.accept(film);
+                    }
+                }
+            }
+            return null;
+        });
     }
 
     @Override
-    public void removeLike(int filmId, int userId) {
-        String sql = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
-        jdbc.update(sql, filmId, userId);
+    public boolean addLike(int filmId, int userId) {
+        if (likeBuffer.isEnabled()) {
+            long at = likeBuffer.like(filmId, userId, trending.now(), () -> storedLikeTime(filmId, userId));
+            if (at == LikeWriteBuffer.NONE) return false;
+            likeAdded(filmId, userId, at);
+            return true;
+        }
+
+        // строка лайка и счётчик меняются в одной транзакции: счётчик не расходится с film_likes
+        long now = trending.now();
+        boolean added = Boolean.TRUE.equals(inLikeTransaction(filmId, userId, () -> {
+            try {
+                jdbc.update("INSERT INTO film_likes (film_id, user_id, created_at) VALUES (?, ?, ?)",
+                        filmId, userId, new Timestamp(now));
+            } catch (DuplicateKeyException e) {
+                // лайк уже стоит (в том числе поставлен параллельным запросом) — счётчик не меняется
+                return false;
+            }
+            jdbc.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+            // при отложенной записи лайки журналирует LikeWriteBuffer, когда они доходят до БД
+            journal.liked(filmId, userId, now);
+            return true;
+        }));
+        if (!added) return false;
+        likeAdded(filmId, userId, now);
+        return true;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        if (likeBuffer.isEnabled()) {
+            // время снятого лайка буфер знает сам, даже если лайк ещё не записан в БД
+            long likedAt = likeBuffer.unlike(filmId, userId, () -> storedLikeTime(filmId, userId));
+            if (likedAt == LikeWriteBuffer.NONE) return false;
+            likeRemoved(filmId, userId, likedAt);
+            return true;
+        }
+
+        // время лайка нужно, чтобы вычесть его из той же часовой корзины трендов
+        Long likedAt = inLikeTransaction(filmId, userId, () -> {
+            Long at = likedAt(filmId, userId);
+            if (at == null) return null;
+            int deleted = jdbc.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+            if (deleted == 0) return null;
+            jdbc.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+            journal.unliked(filmId, userId);
+            return at;
+        });
+        if (likedAt == null) return false;
+        likeRemoved(filmId, userId, likedAt);
+        return true;
+    }
+
+    // журнал пишется в afterCommit, то есть ещё внутри execute — до того, как пару сможет изменить другой запрос
+    private <T> T inLikeTransaction(int filmId, int userId, Supplier<T> action) {
+        Lock lock = likeLocks.of(LongLongMap.pair(filmId, userId));
+        lock.lock();
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> action.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void likeAdded(int filmId, int userId, long at) {
+        likeMatrix.add(filmId, userId);
+        popularity.increment(filmId);
+        partitions.increment(filmId);
+        trending.record(filmId, at, 1);
+    }
+
+    private void likeRemoved(int filmId, int userId, long likedAt) {
+        likeMatrix.remove(filmId, userId);
+        popularity.decrement(filmId);
+        partitions.decrement(filmId);
+        trending.record(filmId, likedAt, -1);
+    }
+
+    private Long likedAt(int filmId, int userId) {
+        List<Timestamp> found = jdbc.queryForList(
+                "SELECT created_at FROM film_likes WHERE film_id = ? AND user_id = ?",
+                Timestamp.class, filmId, userId);
+        return found.isEmpty() ? null : found.get(0).getTime();
+    }
+
+    private long storedLikeTime(int filmId, int userId) {
+        Long likedAt = likedAt(filmId, userId);
+        return likedAt != null ? likedAt : LikeWriteBuffer.NONE;
+    }
+
+    private static void setFilm(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setDate(3, film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null);
+        ps.setInt(4, film.getDuration());
+        ps.setInt(5, film.getMpa().getId());
     }
 
     @Override
     public List<Film> getPopular(int count) {
-        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
-                "f.mpa_id, m.name AS mpa_name, COUNT(fl.user_id) AS likes_count " +
-                "FROM films f " +
-                "JOIN mpa m ON m.id = f.mpa_id " +
-                "LEFT JOIN film_likes fl ON fl.film_id = f.id " +
-                "GROUP BY f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, m.name " +
-                "ORDER BY likes_count DESC, f.id " +
-                "LIMIT ?";
+        return loadTop(count, popularity::top);
+    }
 
-        List<Film> films = jdbc.query(sql, FILM_ROW_MAPPER, count);
-        if (films.isEmpty()) return films;
+    @Override
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) return getPopular(count);
+        return loadTop(count, limit -> partitions.top(genreId, year, limit));
+    }
 
-        List<Integer> ids = films.stream().map(Film::getId).toList();
-        Map<Integer, Set<Genre>> byFilm = loadGenres(ids);
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        return loadTop(count, limit -> trending.top(window, limit));
+    }
 
-        films.forEach(f -> f.setGenres(byFilm.getOrDefault(f.getId(), new LinkedHashSet<>())));
+    @Override
+    public List<Film> search(String query, int limit) {
+        return loadTop(limit, top -> searchIndex.search(query, top, popularity::getLikes));
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int count) {
+        return loadTop(count, limit -> likeMatrix.recommend(userId, limit));
+    }
+
+    @Override
+    public List<Film> getSimilar(int filmId, int count) {
+        return loadTop(count, limit -> likeMatrix.similar(filmId, limit));
+    }
+
+    // Фильм, созданный ещё не закоммиченной транзакцией, уже есть в индексах, но не виден в таблице:
+    // он пропускается, а освободившиеся места занимают следующие по индексу. Из индексов он не убирается.
+    private List<Film> loadTop(int count, IntFunction<List<Integer>> top) {
+        int limit = count;
+        while (true) {
+            List<Integer> ids = top.apply(limit);
+            List<Film> films = loadByIds(ids);
+            if (films.size() >= count) return new ArrayList<>(films.subList(0, count));
+            // индекс исчерпан — больше фильмов нет
+            if (ids.size() < limit) return films;
+            limit += count - films.size();
+        }
+    }
+
+    // только для фильма, создание которого откатилось
+    private void unindex(int filmId) {
+        popularity.remove(filmId);
+        partitions.remove(filmId);
+        trending.remove(filmId);
+        searchIndex.remove(filmId);
+        likeMatrix.removeFilm(filmId);
+    }
+
+    // индексы популярности и наличия id строятся одним проходом по films;
+    // лайки при включённом журнале берутся из него, без чтения film_likes, и по ним же сверяется likes_count
+    @PostConstruct
+    public void rebuildIndexes() {
+        LongLongMap journalLikes = journal.takeLikes();
+        Map<Integer, Long> journalCounts = new HashMap<>();
+        if (journalLikes == null) {
+            jdbc.update("UPDATE films f SET likes_count = " +
+                    "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.id)");
+        } else {
+            journalLikes.forEach((key, at) -> journalCounts.merge(LongLongMap.first(key), 1L, Long::sum));
+        }
+
+        popularity.clear();
+        partitions.clear();
+        searchIndex.clear();
+        knownIds.clear();
+        cache.clear();
+
+        // для разделов популярности и поиска нужны только текст, год и id жанров, без названий жанров и MPA
+        Map<Integer, Film> films = new HashMap<>();
+        List<long[]> recounted = new ArrayList<>();
+        jdbc.query("SELECT id, name, description, release_date, likes_count FROM films", rs -> {
+            Film f = new Film();
+            f.setId(rs.getInt("id"));
+            f.setName(rs.getString("name"));
+            f.setDescription(rs.getString("description"));
+            Date date = rs.getDate("release_date");
+            if (date != null) f.setReleaseDate(date.toLocalDate());
+            f.setGenres(new HashSet<>());
+            films.put(f.getId(), f);
+            long likes = rs.getLong("likes_count");
+            if (journalLikes != null) {
+                long counted = journalCounts.getOrDefault(f.getId(), 0L);
+                if (counted != likes) recounted.add(new long[]{f.getId(), counted});
+                likes = counted;
+            }
+            popularity.put(f.getId(), likes);
+            knownIds.add(f.getId());
+        });
+        if (!recounted.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = ? WHERE id = ?", recounted, recounted.size(),
+                    (ps, row) -> {
+                        ps.setLong(1, row[1]);
+                        ps.setInt(2, (int) row[0]);
+                    });
+            log.warn("Счётчик лайков расходился с журналом у {} фильмов и пересчитан", recounted.size());
+        }
+        jdbc.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            Film f = films.get(rs.getInt("film_id"));
+            if (f == null) return;
+            Genre g = new Genre();
+            g.setId(rs.getInt("genre_id"));
+            f.getGenres().add(g);
+        });
+        films.values().forEach(f -> {
+            partitions.place(f, popularity.getLikes(f.getId()));
+            searchIndex.put(f);
+        });
+
+        likeMatrix.clear();
+        trending.clear();
+        long since = trending.now() - TrendingCounters.RETENTION.toMillis();
+        if (journalLikes != null) {
+            journalLikes.forEach((key, at) -> {
+                int filmId = LongLongMap.first(key);
+                if (!knownIds.contains(filmId)) return;
+                likeMatrix.add(filmId, LongLongMap.second(key));
+                if (at >= since) trending.record(filmId, at, 1);
+            });
+        } else {
+            jdbc.query("SELECT film_id, user_id FROM film_likes", rs -> {
+                likeMatrix.add(rs.getInt("film_id"), rs.getInt("user_id"));
+            });
+            jdbc.query("SELECT film_id, created_at FROM film_likes WHERE created_at >= ?", rs -> {
+                trending.record(rs.getInt("film_id"), rs.getTimestamp("created_at").getTime(), 1);
+            }, new Timestamp(since));
+        }
+        log.info("Индексы популярности и наличия фильмов построены");
+    }
+
+    private List<Film> loadByIds(List<Integer> ids) {
+        if (ids.isEmpty()) return new ArrayList<>();
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbc);
+        String sql = "SELECT f.id, f.name, f.description, f.release_date, f.duration, f.mpa_id, " +
+                "m.name AS mpa_name FROM films f " +
+                "JOIN mpa m ON f.mpa_id = m.id " +
+                "WHERE f.id IN (:ids)";
+        Map<Integer, Film> byId = new HashMap<>();
+        named.query(sql, new MapSqlParameterSource("ids", ids), FILM_ROW_MAPPER)
+                .forEach(f -> byId.put(f.getId(), f));
+        Map<Integer, Set<Genre>> genres = loadGenres(byId.keySet());
+
+        List<Film> films = new ArrayList<>(byId.size());
+        for (Integer id : ids) {
+            Film f = byId.get(id);
+            if (f == null) continue;
+            f.setGenres(genres.getOrDefault(id, new LinkedHashSet<>()));
+            films.add(f);
+        }
         return films;
     }
 
@@ -151,47 +538,55 @@ public class FilmDbStorage implements FilmStorage {
 
         NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbc);
 
-        String sql = "SELECT fg.film_id, g.id AS genre_id, g.name AS genre_name " +
-                "FROM film_genres fg " +
-                "JOIN genres g ON g.id = fg.genre_id " +
-                "WHERE fg.film_id IN (:ids) " +
-                "ORDER BY fg.film_id, g.id";
+        // названия жанров берём из справочника, без JOIN на genres
+        String sql = "SELECT film_id, genre_id FROM film_genres " +
+                "WHERE film_id IN (:ids) " +
+                "ORDER BY film_id, genre_id";
 
         MapSqlParameterSource params = new MapSqlParameterSource("ids", filmIds);
 
         named.query(sql, params, rs -> {
             int filmId = rs.getInt("film_id");
-
-            Genre g = new Genre();
-            g.setId(rs.getInt("genre_id"));
-            g.setName(rs.getString("genre_name"));
-
-            Set<Genre> set = result.get(filmId);
-            if (set == null) {
-                set = new LinkedHashSet<>();
-                result.put(filmId, set);
-            }
-            set.add(g);
+            catalog.findGenre(rs.getInt("genre_id"))
+                    .ifPresent(g -> result.computeIfAbsent(filmId, id -> new LinkedHashSet<>()).add(g));
         });
 
         return result;
     }
 
-    private void saveGenres(int filmId, Set<Genre> genres) {
-        jdbc.update("DELETE FROM film_genres WHERE film_id = ?", filmId);
+    private void insertGenres(int filmId, Set<Genre> genres) {
+        batchGenres("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmId, genreIds(genres));
+    }
+
+    private void updateGenres(int filmId, Set<Genre> genres) {
+        Set<Integer> wanted = genreIds(genres);
+        Set<Integer> stored = new TreeSet<>(jdbc.queryForList(
+                "SELECT genre_id FROM film_genres WHERE film_id = ?", Integer.class, filmId));
+        if (wanted.equals(stored)) return;
 
-        if (genres == null || genres.isEmpty()) return;
+        Set<Integer> toDelete = new TreeSet<>(stored);
+        toDelete.removeAll(wanted);
+        Set<Integer> toInsert = new TreeSet<>(wanted);
+        toInsert.removeAll(stored);
 
-        List<Integer> genreIds = genres.stream()
+        batchGenres("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", filmId, toDelete);
+        batchGenres("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", filmId, toInsert);
+    }
+
+    private void batchGenres(String sql, int filmId, Set<Integer> genreIds) {
+        if (genreIds.isEmpty()) return;
+        jdbc.batchUpdate(sql, genreIds, genreIds.size(), (ps, genreId) -> {
+            ps.setInt(1, filmId);
+            ps.setInt(2, genreId);
+        });
+    }
+
+    private static Set<Integer> genreIds(Set<Genre> genres) {
+        Set<Integer> ids = new TreeSet<>();
+        if (genres == null) return ids;
+        genres.stream()
                 .filter(Objects::nonNull)
-                .map(Genre::getId)
-                .distinct()
-                .sorted()
-                .toList();
-
-        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-        for (Integer genreId : genreIds) {
-            jdbc.update(sql, filmId, genreId);
-        }
+                .forEach(g -> ids.add(g.getId()));
+        return ids;
     }
 }
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Упорядоченный индекс популярности: лайки по убыванию, при равенстве — id по возрастанию.
+// Изменение счётчика одного фильма атомарно (compute по ключу), чтение топа не блокируется.
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int byLikes = Long.compare(b.likes(), a.likes());
+        return byLikes != 0 ? byLikes : Integer.compare(a.filmId(), b.filmId());
+    };
+
+    private final ConcurrentHashMap<Integer, Long> likes = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+
+    public void put(int filmId, long likesCount) {
+        likes.compute(filmId, (id, old) -> reposition(id, old, likesCount));
+    }
+
+    public void increment(int filmId) {
+        change(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        change(filmId, -1);
+    }
+
+    public void remove(int filmId) {
+        likes.computeIfPresent(filmId, (id, old) -> {
+            ranking.remove(new Entry(id, old));
+            return null;
+        });
+    }
+
+    public long getLikes(int filmId) {
+        return likes.getOrDefault(filmId, 0L);
+    }
+
+    public void clear() {
+        likes.clear();
+        ranking.clear();
+    }
+
+    public List<Integer> top(int count) {
+        // во время перестановки фильм может на мгновение встретиться дважды — отбрасываем повтор
+        Set<Integer> ids = new LinkedHashSet<>();
+        Iterator<Entry> it = ranking.iterator();
+        while (ids.size() < count && it.hasNext()) {
+            ids.add(it.next().filmId());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    private void change(int filmId, long delta) {
+        likes.compute(filmId, (id, old) -> reposition(id, old, (old != null ? old : 0L) + delta));
+    }
+
+    private Long reposition(int filmId, Long old, long updated) {
+        // сначала добавляем новую позицию, потом убираем старую, чтобы читатель не потерял фильм
+        ranking.add(new Entry(filmId, updated));
+        if (old != null && old != updated) ranking.remove(new Entry(filmId, old));
+        return updated;
+    }
+
+    private record Entry(int filmId, long likes) {
+    }
+}
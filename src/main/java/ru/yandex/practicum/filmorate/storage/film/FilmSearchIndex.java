@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.IntToLongFunction;
+import java.util.regex.Pattern;
+
+// Инвертированный индекс слов из названий и описаний фильмов.
+// Слова лежат в отсортированной карте, поэтому поиск по префиксу — это обход подкарты.
+// Каждое слово запроса должно найтись у фильма как префикс какого-либо слова; вес совпадения:
+// название — 2, описание — 1, слово названия целиком — ещё +1. Равные веса упорядочиваются по лайкам, затем по id.
+// Запись сериализуется, списки id копируются при изменении, чтение идёт без блокировок.
+// Стоимость запроса ограничена: слова короче MIN_PREFIX ищутся только целиком, префикс набирает
+// не больше MAX_CANDIDATES фильмов (сначала по названиям), а из кандидатов выбираются limit лучших кучей.
+public class FilmSearchIndex {
+    static final int MIN_PREFIX = 3;
+    static final int MAX_CANDIDATES = 10_000;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ConcurrentSkipListMap<String, int[]> nameWords = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, int[]> descriptionWords = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, Indexed> indexed = new ConcurrentHashMap<>();
+
+    public synchronized void put(Film film) {
+        remove(film.getId());
+        Indexed entry = new Indexed(words(film.getName()), words(film.getDescription()));
+        entry.name().forEach(word -> nameWords.compute(word, (w, ids) -> add(ids, film.getId())));
+        entry.description().forEach(word -> descriptionWords.compute(word, (w, ids) -> add(ids, film.getId())));
+        indexed.put(film.getId(), entry);
+    }
+
+    public synchronized void remove(int filmId) {
+        Indexed entry = indexed.remove(filmId);
+        if (entry == null) return;
+        entry.name().forEach(word -> nameWords.computeIfPresent(word, (w, ids) -> drop(ids, filmId)));
+        entry.description().forEach(word -> descriptionWords.computeIfPresent(word, (w, ids) -> drop(ids, filmId)));
+    }
+
+    public synchronized void clear() {
+        nameWords.clear();
+        descriptionWords.clear();
+        indexed.clear();
+    }
+
+    public List<Integer> search(String query, int limit, IntToLongFunction likes) {
+        Map<Integer, Integer> scores = null;
+        for (String term : words(query)) {
+            Map<Integer, Integer> matched = new HashMap<>();
+            collect(nameWords, term, 2, matched);
+            collect(descriptionWords, term, 1, matched);
+            int[] exact = nameWords.get(term);
+            if (exact != null) {
+                for (int id : exact) {
+                    matched.merge(id, 1, Integer::sum);
+                }
+            }
+
+            if (scores == null) {
+                scores = matched;
+            } else {
+                Map<Integer, Integer> both = new HashMap<>();
+                for (Map.Entry<Integer, Integer> e : matched.entrySet()) {
+                    Integer previous = scores.get(e.getKey());
+                    if (previous != null) both.put(e.getKey(), previous + e.getValue());
+                }
+                scores = both;
+            }
+            if (scores.isEmpty()) return List.of();
+        }
+        if (scores == null) return List.of();
+
+        // частичная сортировка, как в TrendingCounters.top: в куче держим только limit лучших, худший — в голове
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Math.max(1, limit), FilmSearchIndex::worseFirst);
+        for (Map.Entry<Integer, Integer> e : scores.entrySet()) {
+            Candidate head = best.peek();
+            if (best.size() == limit && head != null && e.getValue() < head.score()) continue;
+            best.add(new Candidate(e.getKey(), e.getValue(), likes.applyAsLong(e.getKey())));
+            if (best.size() > limit) best.poll();
+        }
+        List<Integer> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().id());
+        }
+        return ids.reversed();
+    }
+
+    private static int worseFirst(Candidate a, Candidate b) {
+        int byScore = Integer.compare(a.score(), b.score());
+        if (byScore != 0) return byScore;
+        int byLikes = Long.compare(a.likes(), b.likes());
+        return byLikes != 0 ? byLikes : Integer.compare(b.id(), a.id());
+    }
+
+    // лучший вес по всем словам с префиксом term; короткий term совпадает только с целым словом,
+    // а обход подкарты останавливается на MAX_CANDIDATES фильмах
+    private static void collect(NavigableMap<String, int[]> words, String term, int weight,
+                                Map<Integer, Integer> scores) {
+        if (term.length() < MIN_PREFIX) {
+            int[] ids = words.get(term);
+            if (ids != null) {
+                for (int id : ids) {
+                    scores.merge(id, weight, Math::max);
+                }
+            }
+            return;
+        }
+        for (int[] ids : words.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+            if (scores.size() >= MAX_CANDIDATES) return;
+            for (int id : ids) {
+                scores.merge(id, weight, Math::max);
+            }
+        }
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) return words;
+        for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT).replace('ё', 'е'))) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    private static int[] add(int[] ids, int filmId) {
+        return SortedIntArrays.insert(ids != null ? ids : SortedIntArrays.EMPTY, filmId);
+    }
+
+    private static int[] drop(int[] ids, int filmId) {
+        int[] rest = SortedIntArrays.remove(ids, filmId);
+        return rest.length == 0 ? null : rest;
+    }
+
+    private record Indexed(Set<String> name, Set<String> description) {
+    }
+
+    private record Candidate(int id, int score, long likes) {
+    }
+}
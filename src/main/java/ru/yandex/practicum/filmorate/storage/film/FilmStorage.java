@@ -2,21 +2,66 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
+    int PAGE_SIZE = 500;
+
     Film create(Film film);
 
+    // добавляет фильмы, уже прошедшие проверку; возвращает id в порядке списка
+    default List<Integer> createAll(List<Film> films) {
+        List<Integer> ids = new ArrayList<>(films.size());
+        films.forEach(film -> ids.add(create(film).getId()));
+        return ids;
+    }
+
     Film update(Film film);
 
-    List<Film> getAll();
+    // страница фильмов с id > afterId, отсортированная по id
+    List<Film> getAll(int afterId, int limit);
+
+    default List<Film> getAll() {
+        List<Film> all = new ArrayList<>();
+        List<Film> page = getAll(0, PAGE_SIZE);
+        while (true) {
+            all.addAll(page);
+            if (page.size() < PAGE_SIZE) return all;
+            page = getAll(page.get(page.size() - 1).getId(), PAGE_SIZE);
+        }
+    }
+
+    // обходит все фильмы по возрастанию id, не собирая их в памяти
+    void streamAll(Consumer<Film> action);
 
     Optional<Film> getById(int id);
 
-    void addLike(int filmId, int userId);
+    // проверка без загрузки записи
+    boolean exists(int id);
+
+    // true, если лайк действительно поставлен или снят
+    boolean addLike(int filmId, int userId);
 
-    void removeLike(int filmId, int userId);
+    boolean removeLike(int filmId, int userId);
 
     List<Film> getPopular(int count);
-}
\ No newline at end of file
+
+    // топ с фильтром по жанру и/или году выпуска; null — фильтра нет
+    List<Film> getPopular(int count, Integer genreId, Integer year);
+
+    // фильмы, собравшие больше всего лайков за последнее окно window (не длиннее TrendingCounters.RETENTION)
+    List<Film> getTrending(Duration window, int count);
+
+    // поиск по словам и префиксам слов в названии и описании
+    List<Film> search(String query, int limit);
+
+    // фильмы, которые лайкали пользователи с похожими лайками, кроме уже лайкнутых самим пользователем
+    List<Film> getRecommendations(int userId, int count);
+
+    // фильмы, которые чаще всего лайкали вместе с данным (не больше CoLikeIndex.TOP_N)
+    List<Film> getSimilar(int filmId, int count);
+}
@@ -1,40 +1,207 @@
-/*package ru.yandex.practicum.filmorate.storage.film;
+package ru.yandex.practicum.filmorate.storage.film;
 
-import org.springframework.stereotype.Component;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
-@Component
+// Хранилище фильмов в памяти (профиль in-memory). Чтения идут без блокировок,
+// записи по одному фильму сериализуются на блокировке его полосы.
+@Repository("filmInMemoryStorage")
+@Profile("in-memory")
+@RequiredArgsConstructor
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private int idCounter = 1;
+    private final ReferenceCatalog catalog;
+
+    private final ConcurrentSkipListMap<Integer, Film> films = new ConcurrentSkipListMap<>();
+    private final LikeMatrix likes = new LikeMatrix();
+    private final FilmPopularityIndex popularity = new FilmPopularityIndex();
+    private final PopularityPartitions partitions = new PopularityPartitions();
+    private final TrendingCounters trending = new TrendingCounters();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    // время лайков нужно только трендам, поэтому старше RETENTION не хранится; чистка — не чаще раза в BUCKET
+    private final ConcurrentHashMap<Long, Long> likedAt = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+    private final AtomicInteger idCounter = new AtomicInteger();
+    private final StripedLocks locks = new StripedLocks();
 
     @Override
     public Film create(Film film) {
-        film.setId(idCounter++);
-        films.put(film.getId(), film);
-        return film;
+        film.setId(idCounter.incrementAndGet());
+        Film stored = normalize(film);
+        Lock lock = locks.of(film.getId());
+        lock.lock();
+        try {
+            films.put(film.getId(), stored);
+            popularity.put(film.getId(), 0);
+            partitions.place(stored, 0);
+            searchIndex.put(stored);
+        } finally {
+            lock.unlock();
+        }
+        return FilmCopies.copy(films.get(film.getId()));
     }
 
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Фильм с таким id не найден");
+        Lock lock = locks.of(film.getId());
+        lock.lock();
+        try {
+            if (!films.containsKey(film.getId())) {
+                throw new NotFoundException("Фильм не найден: " + film.getId());
+            }
+            Film stored = normalize(film);
+            films.put(film.getId(), stored);
+            partitions.place(stored);
+            searchIndex.put(stored);
+        } finally {
+            lock.unlock();
         }
-        films.put(film.getId(), film);
-        return film;
+        return FilmCopies.copy(films.get(film.getId()));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return films.containsKey(id);
     }
 
     @Override
-    public List<Film> getAll() {
-        return new ArrayList<>(films.values());
+    public List<Film> getAll(int afterId, int limit) {
+        List<Film> page = new ArrayList<>(Math.min(limit, films.size()));
+        for (Film f : films.tailMap(afterId, false).values()) {
+            if (page.size() == limit) break;
+            page.add(FilmCopies.copy(f));
+        }
+        return page;
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> action) {
+        films.values().forEach(f -> action.accept(FilmCopies.copy(f)));
     }
 
     @Override
     public Optional<Film> getById(int id) {
-        return Optional.ofNullable(films.get(id));
+        return Optional.ofNullable(films.get(id)).map(FilmCopies::copy);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        Lock lock = locks.of(filmId);
+        lock.lock();
+        try {
+            if (!likes.add(filmId, userId)) return false;
+            popularity.increment(filmId);
+            partitions.increment(filmId);
+            long now = trending.now();
+            likedAt.put(LongLongMap.pair(filmId, userId), now);
+            trending.record(filmId, now, 1);
+        } finally {
+            lock.unlock();
+        }
+        sweepLikeTimes();
+        return true;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        Lock lock = locks.of(filmId);
+        lock.lock();
+        try {
+            if (!likes.remove(filmId, userId)) return false;
+            popularity.decrement(filmId);
+            partitions.decrement(filmId);
+            // времени нет — лайк старше RETENTION и в трендах уже не учитывается
+            Long at = likedAt.remove(LongLongMap.pair(filmId, userId));
+            if (at != null) trending.record(filmId, at, -1);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    @Override
+    public List<Film> getPopular(int count) {
+        return hydrate(popularity.top(count));
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) return getPopular(count);
+        return hydrate(partitions.top(genreId, year, count));
+    }
+
+    @Override
+    public List<Film> getTrending(Duration window, int count) {
+        return hydrate(trending.top(window, count));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return hydrate(searchIndex.search(query, limit, popularity::getLikes));
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int count) {
+        return hydrate(likes.recommend(userId, count));
+    }
+
+    @Override
+    public List<Film> getSimilar(int filmId, int count) {
+        return hydrate(likes.similar(filmId, count));
+    }
+
+    private List<Film> hydrate(List<Integer> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            Film f = films.get(id);
+            if (f != null) result.add(FilmCopies.copy(f));
+        }
+        return result;
+    }
+
+    private void sweepLikeTimes() {
+        long now = trending.now();
+        long next = nextSweep.get();
+        if (now < next || !nextSweep.compareAndSet(next, now + TrendingCounters.BUCKET.toMillis())) return;
+        long cutoff = now - TrendingCounters.RETENTION.toMillis();
+        likedAt.values().removeIf(at -> at < cutoff);
+    }
+
+    // хранится собственная копия с заполненными из справочника названиями MPA и жанров,
+    // жанры отсортированы по id — так же, как их возвращает FilmDbStorage
+    private Film normalize(Film source) {
+        Film f = FilmCopies.copy(source);
+        Mpa mpa = catalog.findMpa(source.getMpa().getId())
+                .orElseThrow(() -> new NotFoundException("Рейтинг MPA не найден: " + source.getMpa().getId()));
+        f.setMpa(mpa);
+
+        Set<Genre> genres = new LinkedHashSet<>();
+        if (source.getGenres() != null) {
+            source.getGenres().stream()
+                    .filter(Objects::nonNull)
+                    .map(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .forEach(id -> genres.add(catalog.findGenre(id)
+                            .orElseThrow(() -> new NotFoundException("Жанр не найден: " + id))));
+        }
+        f.setGenres(genres);
+        return f;
     }
 }
- */
\ No newline at end of file
@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+
+// Разреженная матрица лайков: для пользователя — отсортированный массив его фильмов, для фильма — его лайкнувших.
+// Массивы copy-on-write, как в FriendshipIndex; изменения сериализуются на полосе пользователя.
+// Под той же блокировкой обновляется CoLikeIndex, так что пары фильмов видят лайки пользователя в порядке их применения.
+// Рекомендации: пользователи с наибольшим числом общих лайков (не больше MAX_NEIGHBOURS) «голосуют»
+// за свои фильмы весом, равным числу общих лайков. Подсчёт пересечений делится между потоками fork/join.
+public class LikeMatrix {
+    static final int MAX_NEIGHBOURS = 50;
+    // с очень популярных фильмов берём не всех лайкнувших, чтобы время ответа не росло вместе с ними;
+    // выборка идёт с равным шагом по всему массиву, а не с его начала, где одни старые пользователи
+    static final int MAX_LIKERS_PER_FILM = 2000;
+
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final ConcurrentHashMap<Integer, int[]> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, int[]> byFilm = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks();
+    private final CoLikeIndex coLikes = new CoLikeIndex();
+
+    public boolean add(int filmId, int userId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            int[] current = films(userId);
+            int[] updated = SortedIntArrays.insert(current, filmId);
+            if (updated == current) return false;
+            byUser.put(userId, updated);
+            byFilm.compute(filmId, (id, users) ->
+                    SortedIntArrays.insert(users != null ? users : SortedIntArrays.EMPTY, userId));
+            coLikes.liked(filmId, current);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean remove(int filmId, int userId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            int[] current = films(userId);
+            int[] updated = SortedIntArrays.remove(current, filmId);
+            if (updated == current) return false;
+            if (updated.length == 0) {
+                byUser.remove(userId);
+            } else {
+                byUser.put(userId, updated);
+            }
+            byFilm.computeIfPresent(filmId, (id, users) -> {
+                int[] left = SortedIntArrays.remove(users, userId);
+                return left.length == 0 ? null : left;
+            });
+            coLikes.unliked(filmId, updated);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // фильм удалён: убираем его лайки у всех пользователей и его самого из соседей
+    public void removeFilm(int filmId) {
+        for (int userId : likers(filmId)) {
+            remove(filmId, userId);
+        }
+        coLikes.removeFilm(filmId);
+    }
+
+    // фильмы пользователя; массив менять нельзя
+    public int[] films(int userId) {
+        return byUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    // пользователи, лайкнувшие фильм; массив менять нельзя
+    public int[] likers(int filmId) {
+        return byFilm.getOrDefault(filmId, SortedIntArrays.EMPTY);
+    }
+
+    public void clear() {
+        byUser.clear();
+        byFilm.clear();
+        coLikes.clear();
+    }
+
+    public List<Integer> similar(int filmId, int count) {
+        return coLikes.similar(filmId, count);
+    }
+
+    public List<Integer> recommend(int userId, int count) {
+        int[] mine = films(userId);
+        if (mine.length == 0) return List.of();
+
+        Map<Integer, Integer> overlaps = new OverlapTask(mine, 0, mine.length, userId).invoke();
+        List<Map.Entry<Integer, Integer>> neighbours = overlaps.entrySet().stream()
+                .sorted(LikeMatrix::byWeightThenId)
+                .limit(MAX_NEIGHBOURS)
+                .toList();
+
+        Map<Integer, Integer> votes = new HashMap<>();
+        for (Map.Entry<Integer, Integer> neighbour : neighbours) {
+            for (int filmId : films(neighbour.getKey())) {
+                if (!SortedIntArrays.contains(mine, filmId)) votes.merge(filmId, neighbour.getValue(), Integer::sum);
+            }
+        }
+        return votes.entrySet().stream()
+                .sorted(LikeMatrix::byWeightThenId)
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static int byWeightThenId(Map.Entry<Integer, Integer> a, Map.Entry<Integer, Integer> b) {
+        int byWeight = Integer.compare(b.getValue(), a.getValue());
+        return byWeight != 0 ? byWeight : Integer.compare(a.getKey(), b.getKey());
+    }
+
+    // число общих лайков с каждым пользователем по фильмам films[from, to)
+    private class OverlapTask extends RecursiveTask<Map<Integer, Integer>> {
+        private final int[] films;
+        private final int from;
+        private final int to;
+        private final int self;
+
+        OverlapTask(int[] films, int from, int to, int self) {
+            this.films = films;
+            this.from = from;
+            this.to = to;
+            this.self = self;
+        }
+
+        @Override
+        protected Map<Integer, Integer> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Map<Integer, Integer> counts = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    int[] users = likers(films[i]);
+                    int step = (users.length + MAX_LIKERS_PER_FILM - 1) / MAX_LIKERS_PER_FILM;
+                    for (int j = 0; j < users.length; j += step) {
+                        if (users[j] != self) counts.merge(users[j], 1, Integer::sum);
+                    }
+                }
+                return counts;
+            }
+
+            int mid = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(films, from, mid, self);
+            left.fork();
+            Map<Integer, Integer> right = new OverlapTask(films, mid, to, self).compute();
+            Map<Integer, Integer> joined = left.join();
+            // меньшую карту вливаем в большую
+            Map<Integer, Integer> big = joined.size() >= right.size() ? joined : right;
+            Map<Integer, Integer> small = big == joined ? right : joined;
+            small.forEach((user, n) -> big.merge(user, n, Integer::sum));
+            return big;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Отложенная запись лайков (filmorate.likes.write-behind.enabled=true).
+// В pending лежат только отличия от состояния в БД: время лайка (мс), который нужно вставить,
+// или removal(время) — лайк, поставленный в это время, нужно удалить. Время пишется в film_likes.created_at,
+// так что тренды и журнал видят то же время, что окажется в БД.
+// Противоположная операция над той же парой (фильм, пользователь) гасит отложенную.
+// Пока пачка пишется в БД, её записи лежат в inFlight и считаются базовым состоянием,
+// поэтому чтение состояния лайка всегда видит последнюю принятую операцию.
+// Состояние в БД читается до ConcurrentHashMap.compute, а не внутри: там держится блокировка сегмента карты.
+// Если за это время какая-то пачка успела записаться, прочитанное могло устареть — тогда чтение повторяется.
+// В EventJournal лайки попадают из транзакции записи пачки, а не при приёме: журнал не опережает БД.
+// capacity ограничивает буфер: новое отложенное изменение сверх неё отклоняется (OverloadedException, 503),
+// буфер разгружает фоновый сброс. Если БД отвергла пачку (нарушение ограничений), она пишется по одной
+// строке, а строки, которые БД не принимает, отбрасываются с записью в лог, чтобы не блокировать остальные.
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class LikeWriteBuffer {
+    // лайка нет
+    public static final long NONE = -1;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final EventJournal journal;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int capacity;
+    private final Duration flushInterval;
+
+    private final ConcurrentHashMap<Long, Long> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+    // число записанных пачек; растёт до того, как их записи уходят из inFlight
+    private final AtomicLong written = new AtomicLong();
+    // фоновый сброс уже поставлен в очередь
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ScheduledExecutorService flusher;
+
+    public LikeWriteBuffer(JdbcTemplate jdbc,
+                           PlatformTransactionManager transactionManager,
+                           EventJournal journal,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.flush-interval:1s}") Duration flushInterval) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.journal = journal;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.flushInterval = flushInterval;
+        if (enabled) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "like-write-behind");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly,
+                    flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            log.info("Отложенная запись лайков включена: пачка {}, ёмкость {}, интервал {}",
+                    batchSize, capacity, flushInterval);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // время поставленного лайка или NONE, если лайк уже был; storedAt — время лайка в БД или NONE.
+    // Если лайк гасит отложенное удаление, в БД остаётся прежний лайк, и возвращается его время
+    public long like(int filmId, int userId, long at, LongSupplier storedAt) {
+        return apply(LongLongMap.pair(filmId, userId), true, at, storedAt);
+    }
+
+    // время снятого лайка или NONE, если лайка не было
+    public long unlike(int filmId, int userId, LongSupplier storedAt) {
+        return apply(LongLongMap.pair(filmId, userId), false, NONE, storedAt);
+    }
+
+    public int pendingSize() {
+        return pending.size();
+    }
+
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            Map<Long, Long> batch = new HashMap<>();
+            for (Long key : pending.keySet()) {
+                if (batch.size() == batchSize) break;
+                // запись переезжает в inFlight атомарно, чтобы читатели не увидели устаревшую БД
+                pending.computeIfPresent(key, (k, change) -> {
+                    inFlight.put(k, change);
+                    batch.put(k, change);
+                    return null;
+                });
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                tx.executeWithoutResult(status -> write(batch));
+            } catch (DataIntegrityViolationException e) {
+                log.warn("БД отвергла пачку из {} лайков, запись по одному", batch.size(), e);
+                writeOneByOne(batch);
+                continue;
+            } catch (RuntimeException e) {
+                restore(batch);
+                throw e;
+            }
+            written.incrementAndGet();
+            batch.forEach(inFlight::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flusher == null) return;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushInterval.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("Отложенные лайки записаны при остановке");
+    }
+
+    private long apply(long key, boolean liked, long at, LongSupplier storedAt) {
+        long[] result = {NONE};
+        boolean[] stale = {true};
+        boolean[] full = {false};
+        while (stale[0]) {
+            long seen = written.get();
+            // пока пара в буфере, БД для неё не нужна
+            boolean buffered = pending.containsKey(key) || inFlight.containsKey(key);
+            long inDb = buffered ? NONE : storedAt.getAsLong();
+            stale[0] = false;
+            pending.compute(key, (k, state) -> {
+                Long writing = inFlight.get(k);
+                if (state == null && writing == null && (buffered || written.get() != seen)) {
+                    stale[0] = true;
+                    return null;
+                }
+                long current = state != null ? state : writing != null ? writing : inDb;
+                if ((current >= 0) == liked) return state;
+                if (state != null) {
+                    // есть отложенная противоположная операция — обе гасятся
+                    result[0] = liked ? likedAt(state) : state;
+                    return null;
+                }
+                // гашение отложенной операции место освобождает, а новая запись должна в него поместиться
+                if (pending.size() >= capacity) {
+                    full[0] = true;
+                    return null;
+                }
+                result[0] = liked ? at : current;
+                return liked ? at : removal(current);
+            });
+        }
+
+        if (full[0]) {
+            throw new OverloadedException("Буфер лайков заполнен, повторите запрос позже");
+        }
+        if (result[0] != NONE && pending.size() >= batchSize) requestFlush();
+        return result[0];
+    }
+
+    private void requestFlush() {
+        if (flusher == null || !flushRequested.compareAndSet(false, true)) return;
+        flusher.execute(() -> {
+            flushRequested.set(false);
+            flushQuietly();
+        });
+    }
+
+    // строки, которые БД не принимает, отбрасываются; при любой другой ошибке остаток возвращается в буфер
+    private void writeOneByOne(Map<Long, Long> batch) {
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(batch.entrySet());
+        for (int i = 0; i < rows.size(); i++) {
+            long key = rows.get(i).getKey();
+            long change = rows.get(i).getValue();
+            try {
+                tx.executeWithoutResult(status -> write(Map.of(key, change)));
+            } catch (DataIntegrityViolationException e) {
+                log.error("Лайк фильма {} пользователем {} отброшен: БД его не принимает",
+                        LongLongMap.first(key), LongLongMap.second(key), e);
+            } catch (RuntimeException e) {
+                Map<Long, Long> rest = new HashMap<>();
+                rows.subList(i, rows.size()).forEach(row -> rest.put(row.getKey(), row.getValue()));
+                restore(rest);
+                throw e;
+            }
+            written.incrementAndGet();
+            inFlight.remove(key);
+        }
+    }
+
+    // вернуть несохранённые записи, сократив их с операциями, пришедшими во время записи
+    private void restore(Map<Long, Long> batch) {
+        batch.forEach((key, change) -> pending.compute(key, (k, newer) -> {
+            inFlight.remove(k);
+            return newer == null ? change : null;
+        }));
+    }
+
+    private void write(Map<Long, Long> batch) {
+        List<Map.Entry<Long, Long>> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        batch.forEach((key, change) -> {
+            boolean liked = change >= 0;
+            if (liked) {
+                added.add(Map.entry(key, change));
+            } else {
+                removed.add(key);
+            }
+            deltas.merge(LongLongMap.first(key), liked ? 1 : -1, Integer::sum);
+        });
+
+        if (!added.isEmpty()) {
+            jdbc.batchUpdate("MERGE INTO film_likes (film_id, user_id, created_at) KEY (film_id, user_id) " +
+                            "VALUES (?, ?, ?)",
+                    added, added.size(), (ps, e) -> {
+                        ps.setInt(1, LongLongMap.first(e.getKey()));
+                        ps.setInt(2, LongLongMap.second(e.getKey()));
+                        ps.setTimestamp(3, new Timestamp(e.getValue()));
+                    });
+        }
+        if (!removed.isEmpty()) {
+            jdbc.batchUpdate("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?",
+                    removed, removed.size(), (ps, key) -> {
+                        ps.setInt(1, LongLongMap.first(key));
+                        ps.setInt(2, LongLongMap.second(key));
+                    });
+        }
+        List<Map.Entry<Integer, Integer>> counts = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .toList();
+        if (!counts.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                    counts, counts.size(), (ps, e) -> {
+                        ps.setInt(1, e.getValue());
+                        ps.setInt(2, e.getKey());
+                    });
+        }
+        // записи журнала дописываются после коммита этой транзакции
+        added.forEach(e -> journal.liked(LongLongMap.first(e.getKey()), LongLongMap.second(e.getKey()), e.getValue()));
+        removed.forEach(key -> journal.unliked(LongLongMap.first(key), LongLongMap.second(key)));
+        log.debug("Записано лайков: +{} -{}", added.size(), removed.size());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать отложенные лайки, повтор при следующем сбросе", e);
+        }
+    }
+
+    // отложенное удаление лайка, поставленного в момент likedAt; значения удалений отрицательные
+    private static long removal(long likedAt) {
+        return -1 - likedAt;
+    }
+
+    private static long likedAt(long removal) {
+        return -1 - removal;
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Рейтинги популярности по разделам: жанр, год выпуска и пара (жанр, год).
+// Фильм лежит в разделе каждого своего жанра, в разделе своего года и в разделах пар,
+// поэтому топ с фильтром читается из одного небольшого раздела.
+// Все изменения одного фильма идут через compute по его id, лайки хранятся в его размещении.
+public class PopularityPartitions {
+    private static final long NONE = 0xffffffffL;
+
+    private final ConcurrentHashMap<Integer, Placement> placements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, FilmPopularityIndex> partitions = new ConcurrentHashMap<>();
+
+    // новый фильм или пересчёт при старте
+    public void place(Film film, long likes) {
+        long[] keys = keys(film);
+        placements.compute(film.getId(), (id, old) -> move(id, old, keys, likes));
+    }
+
+    // после обновления: жанры и год могли измениться, лайки остаются прежними
+    public void place(Film film) {
+        long[] keys = keys(film);
+        placements.compute(film.getId(), (id, old) -> move(id, old, keys, old != null ? old.likes() : 0));
+    }
+
+    public void increment(int filmId) {
+        change(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        change(filmId, -1);
+    }
+
+    public void remove(int filmId) {
+        placements.computeIfPresent(filmId, (id, old) -> {
+            for (long key : old.keys()) {
+                partition(key).remove(id);
+            }
+            return null;
+        });
+    }
+
+    // genreId и year — null, если фильтра по ним нет; хотя бы один должен быть задан
+    public List<Integer> top(Integer genreId, Integer year, int count) {
+        FilmPopularityIndex partition = partitions.get(key(genreId, year));
+        return partition != null ? partition.top(count) : List.of();
+    }
+
+    public void clear() {
+        placements.clear();
+        partitions.clear();
+    }
+
+    private Placement move(int filmId, Placement old, long[] keys, long likes) {
+        if (old != null) {
+            for (long key : old.keys()) {
+                if (Arrays.binarySearch(keys, key) < 0) partition(key).remove(filmId);
+            }
+        }
+        for (long key : keys) {
+            partition(key).put(filmId, likes);
+        }
+        return new Placement(keys, likes);
+    }
+
+    private void change(int filmId, long delta) {
+        placements.computeIfPresent(filmId, (id, old) -> {
+            long likes = old.likes() + delta;
+            for (long key : old.keys()) {
+                partition(key).put(id, likes);
+            }
+            return new Placement(old.keys(), likes);
+        });
+    }
+
+    private FilmPopularityIndex partition(long key) {
+        return partitions.computeIfAbsent(key, k -> new FilmPopularityIndex());
+    }
+
+    private static long[] keys(Film film) {
+        Integer year = film.getReleaseDate() != null ? film.getReleaseDate().getYear() : null;
+        int[] genres = film.getGenres() == null ? new int[0] : film.getGenres().stream()
+                .filter(Objects::nonNull)
+                .mapToInt(Genre::getId)
+                .distinct()
+                .toArray();
+
+        long[] keys = new long[year != null ? genres.length * 2 + 1 : genres.length];
+        int i = 0;
+        for (int genre : genres) {
+            keys[i++] = key(genre, null);
+            if (year != null) keys[i++] = key(genre, year);
+        }
+        if (year != null) keys[i] = key(null, year);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private static long key(Integer genreId, Integer year) {
+        long genre = genreId != null ? genreId & NONE : NONE;
+        return (genre << 32) | (year != null ? year & NONE : NONE);
+    }
+
+    private record Placement(long[] keys, long likes) {
+    }
+}
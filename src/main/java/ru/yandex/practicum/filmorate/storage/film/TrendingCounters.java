@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Скользящие счётчики лайков: кольцо часовых корзин за RETENTION, в каждой — лайки по фильмам за этот час.
+// Тренды за окно считаются слиянием последних корзин. Корзина, на место которой пришёл новый час,
+// выбрасывается целиком, поэтому память ограничена фильмами, которые лайкали за RETENTION.
+public class TrendingCounters {
+    public static final Duration BUCKET = Duration.ofHours(1);
+    public static final Duration RETENTION = Duration.ofDays(7);
+
+    private static final long BUCKET_MILLIS = BUCKET.toMillis();
+    private static final int BUCKETS = (int) (RETENTION.toMillis() / BUCKET_MILLIS);
+
+    private final AtomicReferenceArray<Bucket> ring = new AtomicReferenceArray<>(BUCKETS);
+    private final LongSupplier clock;
+
+    public TrendingCounters() {
+        this(System::currentTimeMillis);
+    }
+
+    public TrendingCounters(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    // delta = 1 для лайка, -1 для снятого лайка, поставленного в момент atMillis
+    public void record(int filmId, long atMillis, int delta) {
+        long bucketId = atMillis / BUCKET_MILLIS;
+        if (bucketId <= clock.getAsLong() / BUCKET_MILLIS - BUCKETS) return;
+
+        Bucket bucket = bucket(bucketId);
+        if (bucket != null) bucket.counts().computeIfAbsent(filmId, id -> new LongAdder()).add(delta);
+    }
+
+    public List<Integer> top(Duration window, int count) {
+        long current = clock.getAsLong() / BUCKET_MILLIS;
+        long span = Math.min(BUCKETS, Math.max(1, (window.toMillis() + BUCKET_MILLIS - 1) / BUCKET_MILLIS));
+
+        Map<Integer, Long> totals = new HashMap<>();
+        for (long id = current - span + 1; id <= current; id++) {
+            Bucket bucket = ring.get(slot(id));
+            if (bucket == null || bucket.id() != id) continue;
+            bucket.counts().forEach((filmId, adder) -> totals.merge(filmId, adder.sum(), Long::sum));
+        }
+
+        // частичная сортировка: в куче держим только count лучших
+        PriorityQueue<Map.Entry<Integer, Long>> best = new PriorityQueue<>(Math.max(1, count), (a, b) -> {
+            int byLikes = Long.compare(a.getValue(), b.getValue());
+            return byLikes != 0 ? byLikes : Integer.compare(b.getKey(), a.getKey());
+        });
+        for (Map.Entry<Integer, Long> e : totals.entrySet()) {
+            if (e.getValue() <= 0) continue;
+            best.add(e);
+            if (best.size() > count) best.poll();
+        }
+        List<Integer> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().getKey());
+        }
+        return ids.reversed();
+    }
+
+    public void remove(int filmId) {
+        for (int i = 0; i < BUCKETS; i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null) bucket.counts().remove(filmId);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            ring.set(i, null);
+        }
+    }
+
+    // корзина часа bucketId; null, если её место уже занято более поздним часом
+    private Bucket bucket(long bucketId) {
+        int slot = slot(bucketId);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.id() == bucketId) return bucket;
+            if (bucket != null && bucket.id() > bucketId) return null;
+            Bucket fresh = new Bucket(bucketId, new ConcurrentHashMap<>());
+            if (ring.compareAndSet(slot, bucket, fresh)) return fresh;
+        }
+    }
+
+    private static int slot(long bucketId) {
+        return (int) Math.floorMod(bucketId, (long) BUCKETS);
+    }
+
+    private record Bucket(long id, ConcurrentHashMap<Integer, LongAdder> counts) {
+    }
+}
@@ -0,0 +1,506 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Журнал изменений лайков и дружбы (filmorate.journal.enabled=true). Каждое изменение после коммита
+// дописывается в текущий сегмент — файл фиксированного размера, отображённый в память, записи по 17 байт.
+// Снимок snapshot.bin хранит свёрнутое состояние (пара -> время лайка или статус заявки) и номер
+// последнего вошедшего в него сегмента. При старте состояние собирается из снимка и хвоста журнала
+// чтением отображённых файлов, без полного чтения film_likes и friendships; индексы хранилищ
+// забирают его один раз через takeLikes/takeFriendships. Снимок обновляется фоновым сжатием,
+// закрытые сегменты после этого удаляются.
+// Если снимка нет, он строится по БД; при verify=true восстановленное состояние сверяется с БД
+// и при расхождении заменяется им. Если дописать запись не удалось, снимок удаляется, и следующий
+// старт снова читает БД.
+// Сегмент сбрасывается на диск только при смене и при закрытии, поэтому штатное закрытие оставляет
+// метку closed. Нет метки — процесс упал, и хвост журнала мог не дойти до диска: состояние читается из БД.
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class EventJournal {
+    public static final long PENDING = 1;
+    public static final long CONFIRMED = 2;
+
+    private static final byte LIKE = 1;
+    private static final byte UNLIKE = 2;
+    private static final byte FRIEND = 3;
+    private static final byte CONFIRM = 4;
+    private static final byte UNFRIEND = 5;
+
+    private static final int SEGMENT_MAGIC = 0x464a524e;
+    private static final int SNAPSHOT_MAGIC = 0x46534e50;
+    private static final int FORMAT_VERSION = 1;
+    // magic, версия, номер сегмента
+    private static final int SEGMENT_HEADER = 16;
+    // тип, два id, время
+    private static final int RECORD_SIZE = 17;
+    // magic, версия, последний вошедший сегмент, число лайков, число заявок
+    private static final int SNAPSHOT_HEADER = 32;
+    private static final int ENTRY_SIZE = 16;
+    private static final int SNAPSHOT_WINDOW_ENTRIES = 1 << 22;
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String CLOSED = "closed";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{16})\\.log");
+
+    private final JdbcTemplate jdbc;
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentSize;
+    private final Duration snapshotInterval;
+    private final boolean verify;
+
+    private final Object appendLock = new Object();
+    private MappedByteBuffer segment;
+    private long segmentSequence;
+    private int position;
+    private volatile boolean failed;
+    private long covered;
+
+    private LongLongMap restoredLikes;
+    private LongLongMap restoredFriendships;
+    private ScheduledExecutorService compactor;
+
+    public EventJournal(JdbcTemplate jdbc,
+                        @Value("${filmorate.journal.enabled:false}") boolean enabled,
+                        @Value("${filmorate.journal.dir:data/journal}") Path dir,
+                        @Value("${filmorate.journal.segment-size:16MB}") DataSize segmentSize,
+                        @Value("${filmorate.journal.snapshot-interval:10m}") Duration snapshotInterval,
+                        @Value("${filmorate.journal.verify:false}") boolean verify) {
+        this.jdbc = jdbc;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.segmentSize = (int) Math.max(SEGMENT_HEADER + RECORD_SIZE,
+                Math.min(segmentSize.toBytes(), Integer.MAX_VALUE));
+        this.snapshotInterval = snapshotInterval;
+        this.verify = verify;
+    }
+
+    @PostConstruct
+    public void open() {
+        if (!enabled) return;
+
+        long started = System.nanoTime();
+        State state;
+        try {
+            Files.createDirectories(dir);
+            List<Long> segments = segments();
+            long last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+            // метка снимается сразу: до следующего штатного закрытия журнал считается незакрытым
+            boolean closedCleanly = Files.deleteIfExists(dir.resolve(CLOSED));
+            boolean hasSnapshot = Files.exists(dir.resolve(SNAPSHOT));
+            if (hasSnapshot && closedCleanly) {
+                Snapshot snapshot = fold(last);
+                state = snapshot.state();
+                last = Math.max(last, snapshot.covered());
+                if (verify) state = verified(state);
+            } else {
+                state = loadDatabase();
+                if (hasSnapshot) {
+                    log.warn("Журнал не был закрыт штатно, состояние прочитано из БД");
+                } else {
+                    log.info("Снимок журнала не найден, состояние прочитано из БД");
+                }
+            }
+
+            writeSnapshot(state, last);
+            deleteSegmentsUpTo(last);
+            covered = last;
+            openSegment(last + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + dir, e);
+        }
+        restoredLikes = state.likes();
+        restoredFriendships = state.friendships();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compact,
+                snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Журнал открыт: лайков {}, заявок в друзья {}, за {} мс", state.likes().size(),
+                state.friendships().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // восстановленные при старте лайки: ключ LongLongMap.pair(filmId, userId) -> время лайка;
+    // отдаются один раз, дальше null — повторная перестройка индексов читает БД
+    public LongLongMap takeLikes() {
+        LongLongMap likes = restoredLikes;
+        restoredLikes = null;
+        return likes;
+    }
+
+    // ключ LongLongMap.pair(userId, friendId) -> PENDING или CONFIRMED; отдаются один раз
+    public LongLongMap takeFriendships() {
+        LongLongMap friendships = restoredFriendships;
+        restoredFriendships = null;
+        return friendships;
+    }
+
+    public void liked(int filmId, int userId, long at) {
+        record(LIKE, filmId, userId, at);
+    }
+
+    public void unliked(int filmId, int userId) {
+        record(UNLIKE, filmId, userId, 0);
+    }
+
+    public void friendAdded(int userId, int friendId) {
+        record(FRIEND, userId, friendId, 0);
+    }
+
+    public void friendConfirmed(int userId, int friendId) {
+        record(CONFIRM, userId, friendId, 0);
+    }
+
+    public void friendRemoved(int userId, int friendId) {
+        record(UNFRIEND, userId, friendId, 0);
+    }
+
+    // сворачивает закрытые сегменты в новый снимок и удаляет их
+    public synchronized void compact() {
+        if (!enabled) return;
+
+        long closedUpTo;
+        synchronized (appendLock) {
+            if (failed || segment == null) return;
+            if (position > SEGMENT_HEADER) {
+                try {
+                    rotate();
+                } catch (UncheckedIOException e) {
+                    fail(e);
+                    return;
+                }
+            }
+            closedUpTo = segmentSequence - 1;
+        }
+        if (closedUpTo <= covered) return;
+
+        try {
+            State state = fold(closedUpTo).state();
+            writeSnapshot(state, closedUpTo);
+            if (failed) {
+                // запись в журнал сорвалась во время сжатия — снимок уже неполный
+                Files.deleteIfExists(dir.resolve(SNAPSHOT));
+                return;
+            }
+            deleteSegmentsUpTo(closedUpTo);
+            covered = closedUpTo;
+            log.debug("Снимок журнала обновлён до сегмента {}", closedUpTo);
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Не удалось обновить снимок журнала, повтор при следующем сжатии", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdown();
+            // идущее сжатие может ещё ротировать сегмент — отметка о закрытии ставится только после него
+            try {
+                if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    log.warn("Сжатие журнала не завершилось при остановке, при старте состояние будет прочитано из БД");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (appendLock) {
+            if (segment == null) return;
+            segment.force();
+            segment = null;
+            try {
+                Files.createFile(dir.resolve(CLOSED));
+            } catch (IOException e) {
+                log.error("Не удалось отметить штатное закрытие журнала, при старте состояние будет прочитано из БД", e);
+            }
+        }
+    }
+
+    private void record(byte type, int first, int second, long at) {
+        if (!enabled) return;
+        // откаченное изменение в журнал попасть не должно
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(type, first, second, at);
+                }
+            });
+        } else {
+            append(type, first, second, at);
+        }
+    }
+
+    private void append(byte type, int first, int second, long at) {
+        synchronized (appendLock) {
+            if (failed || segment == null) return;
+            try {
+                if (position + RECORD_SIZE > segment.limit()) rotate();
+            } catch (UncheckedIOException e) {
+                fail(e);
+                return;
+            }
+            segment.putInt(position + 1, first);
+            segment.putInt(position + 5, second);
+            segment.putLong(position + 9, at);
+            // тип пишется последним: запись без типа читатель примет за конец сегмента
+            segment.put(position, type);
+            position += RECORD_SIZE;
+        }
+    }
+
+    private void fail(Exception e) {
+        failed = true;
+        segment = null;
+        try {
+            Files.deleteIfExists(dir.resolve(SNAPSHOT));
+        } catch (IOException suppressed) {
+            e.addSuppressed(suppressed);
+        }
+        log.error("Журнал отключён до перезапуска, при старте состояние будет прочитано из БД", e);
+    }
+
+    private void rotate() {
+        segment.force();
+        try {
+            openSegment(segmentSequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала", e);
+        }
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile(sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.putInt(0, SEGMENT_MAGIC);
+        segment.putInt(4, FORMAT_VERSION);
+        segment.putLong(8, sequence);
+        segmentSequence = sequence;
+        position = SEGMENT_HEADER;
+    }
+
+    // снимок плюс сегменты после него, не дальше upTo
+    private Snapshot fold(long upTo) throws IOException {
+        Snapshot snapshot = readSnapshot();
+        for (long sequence : segments()) {
+            if (sequence > snapshot.covered() && sequence <= upTo) replay(sequence, snapshot.state());
+        }
+        return snapshot;
+    }
+
+    private void replay(long sequence, State state) throws IOException {
+        Path file = segmentFile(sequence);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (records.limit() < SEGMENT_HEADER || records.getInt(0) != SEGMENT_MAGIC
+                    || records.getInt(4) != FORMAT_VERSION) {
+                throw new IllegalStateException("Повреждён сегмент журнала " + file);
+            }
+            for (int at = SEGMENT_HEADER; at + RECORD_SIZE <= records.limit(); at += RECORD_SIZE) {
+                byte type = records.get(at);
+                if (type == 0) break;
+                apply(state, type, records.getInt(at + 1), records.getInt(at + 5), records.getLong(at + 9));
+            }
+        }
+    }
+
+    private static void apply(State state, byte type, int first, int second, long at) {
+        long key = LongLongMap.pair(first, second);
+        switch (type) {
+            case LIKE -> state.likes().put(key, at);
+            case UNLIKE -> state.likes().remove(key);
+            // как MERGE в UserDbStorage: повторная заявка снова становится неподтверждённой
+            case FRIEND -> state.friendships().put(key, PENDING);
+            case CONFIRM -> {
+                if (state.friendships().containsKey(key)) state.friendships().put(key, CONFIRMED);
+            }
+            case UNFRIEND -> state.friendships().remove(key);
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private Snapshot readSnapshot() throws IOException {
+        Path file = dir.resolve(SNAPSHOT);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(channel.size(), SNAPSHOT_HEADER));
+            if (header.limit() < SNAPSHOT_HEADER || header.getInt(0) != SNAPSHOT_MAGIC
+                    || header.getInt(4) != FORMAT_VERSION) {
+                throw new IllegalStateException("Повреждён снимок журнала " + file);
+            }
+            long snapshotCovered = header.getLong(8);
+            long likesCount = header.getLong(16);
+            long friendshipsCount = header.getLong(24);
+            if (channel.size() != SNAPSHOT_HEADER + (likesCount + friendshipsCount) * ENTRY_SIZE) {
+                throw new IllegalStateException("Снимок журнала " + file + " обрезан");
+            }
+
+            LongLongMap likes = new LongLongMap((int) likesCount);
+            LongLongMap friendships = new LongLongMap((int) friendshipsCount);
+            long offset = readEntries(channel, SNAPSHOT_HEADER, likesCount, likes);
+            readEntries(channel, offset, friendshipsCount, friendships);
+            return new Snapshot(new State(likes, friendships), snapshotCovered);
+        }
+    }
+
+    // записи читаются из отображённых окон, без копирования файла в буфер
+    private static long readEntries(FileChannel channel, long offset, long count, LongLongMap into) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            int batch = (int) Math.min(remaining, SNAPSHOT_WINDOW_ENTRIES);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) batch * ENTRY_SIZE);
+            for (int i = 0; i < batch; i++) {
+                into.put(window.getLong(i * ENTRY_SIZE), window.getLong(i * ENTRY_SIZE + 8));
+            }
+            offset += (long) batch * ENTRY_SIZE;
+            remaining -= batch;
+        }
+        return offset;
+    }
+
+    // новый снимок пишется рядом и атомарно заменяет старый
+    private void writeSnapshot(State state, long upTo) throws IOException {
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            EntryWriter writer = new EntryWriter(channel);
+            writer.buffer.putInt(SNAPSHOT_MAGIC).putInt(FORMAT_VERSION).putLong(upTo)
+                    .putLong(state.likes().size()).putLong(state.friendships().size());
+            state.likes().forEach(writer);
+            state.friendships().forEach(writer);
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private State verified(State restored) {
+        State stored = loadDatabase();
+        long likes = differences(restored.likes(), stored.likes());
+        long friendships = differences(restored.friendships(), stored.friendships());
+        if (likes == 0 && friendships == 0) {
+            log.info("Проверка журнала: состояние совпадает с БД");
+            return restored;
+        }
+        log.warn("Проверка журнала: расхождений с БД по лайкам {}, по дружбе {}; состояние взято из БД",
+                likes, friendships);
+        return stored;
+    }
+
+    // сравниваются и пары, и значения: статус дружбы и время лайка
+    private static long differences(LongLongMap restored, LongLongMap stored) {
+        long[] count = {0};
+        stored.forEach((key, value) -> {
+            if (!restored.containsKey(key) || restored.get(key, 0) != value) count[0]++;
+        });
+        restored.forEach((key, value) -> {
+            if (!stored.containsKey(key)) count[0]++;
+        });
+        return count[0];
+    }
+
+    private State loadDatabase() {
+        LongLongMap likes = new LongLongMap();
+        jdbc.query("SELECT film_id, user_id, created_at FROM film_likes", rs -> {
+            likes.put(LongLongMap.pair(rs.getInt("film_id"), rs.getInt("user_id")),
+                    rs.getTimestamp("created_at").getTime());
+        });
+        LongLongMap friendships = new LongLongMap();
+        jdbc.query("SELECT user_id, friend_id, status FROM friendships", rs -> {
+            friendships.put(LongLongMap.pair(rs.getInt("user_id"), rs.getInt("friend_id")),
+                    "CONFIRMED".equals(rs.getString("status")) ? CONFIRMED : PENDING);
+        });
+        return new State(likes, friendships);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> SEGMENT_NAME.matcher(f.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(m -> Long.parseLong(m.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void deleteSegmentsUpTo(long sequence) throws IOException {
+        for (long existing : segments()) {
+            if (existing <= sequence) Files.delete(segmentFile(existing));
+        }
+    }
+
+    private Path segmentFile(long sequence) {
+        return dir.resolve(String.format("journal-%016d.log", sequence));
+    }
+
+    private record State(LongLongMap likes, LongLongMap friendships) {
+    }
+
+    private record Snapshot(State state, long covered) {
+    }
+
+    private static final class EntryWriter implements LongLongMap.Visitor {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        EntryWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void accept(long key, long value) {
+            if (buffer.remaining() < ENTRY_SIZE) flush();
+            buffer.putLong(key).putLong(value);
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
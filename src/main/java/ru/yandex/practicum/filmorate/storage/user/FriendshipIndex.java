@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+// Граф дружбы в памяти: для каждого пользователя отсортированные массивы исходящих заявок/друзей
+// и входящих. Массивы не меняются на месте (copy-on-write), читатели работают без блокировок;
+// изменения одной пары сериализуются на блокировке полосы пользователя-отправителя.
+// Статус заявки на списки не влияет: getFriends, как и запрос к friendships, возвращает все исходящие.
+public class FriendshipIndex {
+    // сколько соседей просматривается на каждом шаге обхода
+    static final int MAX_FANOUT = 1000;
+
+    private final ConcurrentHashMap<Integer, int[]> outgoing = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, int[]> incoming = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks();
+
+    public boolean add(int userId, int friendId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            int[] current = friends(userId);
+            int[] updated = SortedIntArrays.insert(current, friendId);
+            if (updated == current) return false;
+            outgoing.put(userId, updated);
+            incoming.compute(friendId, (id, in) ->
+                    SortedIntArrays.insert(in != null ? in : SortedIntArrays.EMPTY, userId));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean remove(int userId, int friendId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            int[] current = friends(userId);
+            int[] updated = SortedIntArrays.remove(current, friendId);
+            if (updated == current) return false;
+            if (updated.length == 0) {
+                outgoing.remove(userId);
+            } else {
+                outgoing.put(userId, updated);
+            }
+            incoming.computeIfPresent(friendId, (id, in) -> {
+                int[] left = SortedIntArrays.remove(in, userId);
+                return left.length == 0 ? null : left;
+            });
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(int userId, int friendId) {
+        return SortedIntArrays.contains(friends(userId), friendId);
+    }
+
+    // кому пользователь отправил заявку (в том числе подтверждённую); массив менять нельзя
+    public int[] friends(int userId) {
+        return outgoing.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    // кто отправил заявку пользователю; массив менять нельзя
+    public int[] followers(int userId) {
+        return incoming.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] commonFriends(int userId, int otherId) {
+        return SortedIntArrays.intersect(friends(userId), friends(otherId));
+    }
+
+    // друзья друзей по убыванию числа общих друзей (при равенстве — по id);
+    // сам пользователь, его друзья и те, кто уже отправил ему заявку, пропускаются
+    public int[] suggestions(int userId, int count) {
+        int[] friends = friends(userId);
+        int[] followers = followers(userId);
+        int hops = Math.min(friends.length, MAX_FANOUT);
+        LongLongMap mutual = new LongLongMap(hops * 4);
+        for (int i = 0; i < hops; i++) {
+            int[] second = friends(friends[i]);
+            int limit = Math.min(second.length, MAX_FANOUT);
+            for (int j = 0; j < limit; j++) {
+                int candidate = second[j];
+                if (candidate == userId
+                        || SortedIntArrays.contains(friends, candidate)
+                        || SortedIntArrays.contains(followers, candidate)) {
+                    continue;
+                }
+                mutual.add(candidate, 1);
+            }
+        }
+        return mutual.topIds(count);
+    }
+
+    // кратчайшая цепочка заявок from -> ... -> to не длиннее maxDepth шагов (вместе с концами);
+    // пустой массив, если цепочки нет или обход посетил больше visitBudget пользователей.
+    // Двунаправленный поиск в ширину: вперёд по исходящим, назад по входящим,
+    // на каждом шаге целиком раскрывается меньший фронт; первая встреча фронтов даёт кратчайший путь.
+    public int[] path(int from, int to, int maxDepth, int visitBudget) {
+        if (from == to) return new int[]{from};
+
+        // предшественник на пути к началу (или к концу); 0 — корень обхода, id пользователей положительные
+        Map<Integer, Integer> forward = new HashMap<>();
+        Map<Integer, Integer> backward = new HashMap<>();
+        forward.put(from, 0);
+        backward.put(to, 0);
+        int[] forwardFrontier = {from};
+        int[] backwardFrontier = {to};
+        int visited = 2;
+
+        for (int depth = 0; depth < maxDepth && forwardFrontier.length > 0 && backwardFrontier.length > 0; depth++) {
+            boolean forwardStep = forwardFrontier.length <= backwardFrontier.length;
+            int[] frontier = forwardStep ? forwardFrontier : backwardFrontier;
+            Map<Integer, Integer> own = forwardStep ? forward : backward;
+            Map<Integer, Integer> other = forwardStep ? backward : forward;
+
+            int[] next = new int[Math.max(8, frontier.length)];
+            int size = 0;
+            for (int node : frontier) {
+                for (int neighbour : forwardStep ? friends(node) : followers(node)) {
+                    if (own.putIfAbsent(neighbour, node) != null) continue;
+                    if (other.containsKey(neighbour)) return join(neighbour, forward, backward);
+                    if (++visited > visitBudget) return SortedIntArrays.EMPTY;
+                    if (size == next.length) next = Arrays.copyOf(next, size * 2);
+                    next[size++] = neighbour;
+                }
+            }
+            next = Arrays.copyOf(next, size);
+            if (forwardStep) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+        }
+        return SortedIntArrays.EMPTY;
+    }
+
+    public void clear() {
+        outgoing.clear();
+        incoming.clear();
+    }
+
+    // склеивает половины пути, сходящиеся в meeting
+    private static int[] join(int meeting, Map<Integer, Integer> forward, Map<Integer, Integer> backward) {
+        int forwardLength = 0;
+        for (int id = meeting; id != 0; id = forward.get(id)) forwardLength++;
+        int backwardLength = 0;
+        for (int id = backward.get(meeting); id != 0; id = backward.get(id)) backwardLength++;
+
+        int[] path = new int[forwardLength + backwardLength];
+        int i = forwardLength - 1;
+        for (int id = meeting; id != 0; id = forward.get(id)) path[i--] = id;
+        i = forwardLength;
+        for (int id = backward.get(meeting); id != 0; id = backward.get(id)) path[i++] = id;
+        return path;
+    }
+}
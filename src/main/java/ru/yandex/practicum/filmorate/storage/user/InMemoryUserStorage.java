@@ -1,41 +1,168 @@
-/*package ru.yandex.practicum.filmorate.storage.user;
+package ru.yandex.practicum.filmorate.storage.user;
 
-
-import org.springframework.stereotype.Component;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
-@Component
+// Хранилище пользователей в памяти (профиль in-memory). Списки друзей держит FriendshipIndex,
+// статус заявок меняется под блокировкой полосы пользователя; чтения идут без блокировок.
+@Repository("userInMemoryStorage")
+@Profile("in-memory")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int idCounter = 1;
+    private final ConcurrentSkipListMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final FriendshipIndex friendships = new FriendshipIndex();
+    // подтверждённые заявки по полосам отправителя: каждая часть меняется и читается под его блокировкой
+    private final LongLongMap[] confirmed = newConfirmed();
+    private final AtomicInteger idCounter = new AtomicInteger();
+    private final StripedLocks locks = new StripedLocks();
 
     @Override
     public User create(User user) {
-        user.setId(idCounter++);
-        users.put(user.getId(), user);
+        user.setId(idCounter.incrementAndGet());
+        users.put(user.getId(), copy(user));
         return user;
     }
 
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new NotFoundException("Пользователь с таким id не найден");
+        Lock lock = locks.of(user.getId());
+        lock.lock();
+        try {
+            if (!users.containsKey(user.getId())) {
+                throw new NotFoundException("Пользователь не найден: " + user.getId());
+            }
+            users.put(user.getId(), copy(user));
+        } finally {
+            lock.unlock();
         }
-        users.put(user.getId(), user);
         return user;
     }
 
     @Override
-    public List<User> getAll() {
-        return new ArrayList<>(users.values());
+    public Optional<User> getById(int id) {
+        return Optional.ofNullable(users.get(id)).map(InMemoryUserStorage::copy);
     }
 
     @Override
-    public Optional<User> getById(int id) {
-        return Optional.ofNullable(users.get(id));
+    public boolean exists(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public List<User> getAll(int afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, users.size()));
+        for (User u : users.tailMap(afterId, false).values()) {
+            if (page.size() == limit) break;
+            page.add(copy(u));
+        }
+        return page;
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        users.values().forEach(u -> action.accept(copy(u)));
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            friendships.add(userId, friendId);
+            // как MERGE в UserDbStorage: повторная заявка снова становится неподтверждённой
+            confirmed(userId).remove(LongLongMap.pair(userId, friendId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void confirmFriend(int userId, int friendId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            boolean pending = friendships.contains(userId, friendId)
+                    && !confirmed(userId).containsKey(LongLongMap.pair(userId, friendId));
+            if (!pending) {
+                throw new NotFoundException("Заявка не найдена или уже подтверждена");
+            }
+            confirmed(userId).put(LongLongMap.pair(userId, friendId), 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeFriend(int userId, int friendId) {
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            friendships.remove(userId, friendId);
+            confirmed(userId).remove(LongLongMap.pair(userId, friendId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return hydrate(friendships.friends(userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int friendId) {
+        return hydrate(friendships.commonFriends(userId, friendId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int count) {
+        return hydrate(friendships.suggestions(userId, count));
+    }
+
+    @Override
+    public List<User> getFriendPath(int userId, int otherId, int maxDepth, int visitBudget) {
+        return hydrate(friendships.path(userId, otherId, maxDepth, visitBudget));
+    }
+
+    private List<User> hydrate(int[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            User u = users.get(id);
+            if (u != null) result.add(copy(u));
+        }
+        return result;
+    }
+
+    private LongLongMap confirmed(int userId) {
+        return confirmed[StripedLocks.stripe(userId)];
+    }
+
+    private static User copy(User source) {
+        User u = new User();
+        u.setId(source.getId());
+        u.setEmail(source.getEmail());
+        u.setLogin(source.getLogin());
+        u.setName(source.getName());
+        u.setBirthday(source.getBirthday());
+        return u;
+    }
+
+    private static LongLongMap[] newConfirmed() {
+        LongLongMap[] result = new LongLongMap[StripedLocks.STRIPES];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new LongLongMap();
+        }
+        return result;
     }
 }
-*/
\ No newline at end of file
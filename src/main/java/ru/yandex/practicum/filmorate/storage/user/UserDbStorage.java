@@ -1,24 +1,54 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.IdPresenceIndex;
+import ru.yandex.practicum.filmorate.storage.LongLongMap;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.TransactionHooks;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
+@Slf4j
 @Repository("userDbStorage")
+@Profile("!in-memory")
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbc;
+    private final PlatformTransactionManager transactionManager;
+    private final EventJournal journal;
+    private final FriendshipIndex friendships = new FriendshipIndex();
+    private final IdPresenceIndex knownIds = new IdPresenceIndex();
+    // заявки одного пользователя идут по очереди: транзакция с записью в журнал при коммите, затем индекс,
+    // иначе параллельные добавление и удаление одной пары могут применить их к индексу в обратном порядке
+    private final StripedLocks locks = new StripedLocks();
 
     private static final RowMapper<User> USER_ROW_MAPPER = (rs, rn) -> {
         User u = new User();
@@ -45,6 +75,7 @@ public class UserDbStorage implements UserStorage {
         }, keyHolder);
 
         user.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
+        knownIds.addCreated(user.getId());
         return user;
     }
 
@@ -64,49 +95,162 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public List<User> getAll() {
-        return jdbc.query("SELECT * FROM users ORDER BY id", USER_ROW_MAPPER);
+    public boolean exists(int id) {
+        return knownIds.contains(id);
+    }
+
+    @Override
+    public List<User> getAll(int afterId, int limit) {
+        return jdbc.query("SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?", USER_ROW_MAPPER, afterId, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> action) {
+        int[] rowNum = {0};
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT * FROM users ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            action.accept(USER_ROW_MAPPER.mapRow(rs, rowNum[0]++));
+        });
     }
 
     @Override
     public void addFriend(int userId, int friendId) {
         String sql = "MERGE INTO friendships (user_id, friend_id, status) " +
                 "KEY (user_id, friend_id) VALUES (?, ?, 'PENDING')";
-        jdbc.update(sql, userId, friendId);
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbc.update(sql, userId, friendId);
+                journal.friendAdded(userId, friendId);
+            });
+            if (friendships.add(userId, friendId)) {
+                undoOnRollback(userId, () -> friendships.remove(userId, friendId));
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void confirmFriend(int userId, int friendId) {
         String sql = "UPDATE friendships SET status = 'CONFIRMED' " +
                 "WHERE user_id = ? AND friend_id = ? AND status = 'PENDING'";
-        int updated = jdbc.update(sql, userId, friendId);
-        if (updated == 0) {
-            throw new NotFoundException("Заявка не найдена или уже подтверждена");
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                int updated = jdbc.update(sql, userId, friendId);
+                if (updated == 0) {
+                    throw new NotFoundException("Заявка не найдена или уже подтверждена");
+                }
+                journal.friendConfirmed(userId, friendId);
+            });
+        } finally {
+            lock.unlock();
         }
     }
 
     @Override
     public void removeFriend(int userId, int friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
-        jdbc.update(sql, userId, friendId);
+        Lock lock = locks.of(userId);
+        lock.lock();
+        try {
+            boolean deleted = Boolean.TRUE.equals(new TransactionTemplate(transactionManager).execute(status -> {
+                if (jdbc.update(sql, userId, friendId) == 0) return false;
+                journal.friendRemoved(userId, friendId);
+                return true;
+            }));
+            if (deleted && friendships.remove(userId, friendId)) {
+                undoOnRollback(userId, () -> friendships.add(userId, friendId));
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public List<User> getFriends(int userId) {
-        String sql = "SELECT u.* FROM friendships f " +
-                "JOIN users u ON u.id = f.friend_id " +
-                "WHERE f.user_id = ? " +
-                "ORDER BY u.id";
-        return jdbc.query(sql, USER_ROW_MAPPER, userId);
+        return loadByIds(friendships.friends(userId));
     }
 
     @Override
     public List<User> getCommonFriends(int userId, int friendId) {
-        String sql = "SELECT u.* FROM friendships f1 " +
-                "JOIN friendships f2 ON f1.friend_id = f2.friend_id " +
-                "JOIN users u ON u.id = f1.friend_id " +
-                "WHERE f1.user_id = ? AND f2.user_id = ? " +
-                "ORDER BY u.id";
-        return jdbc.query(sql, USER_ROW_MAPPER, userId, friendId);
+        return loadByIds(friendships.commonFriends(userId, friendId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int count) {
+        return loadInOrder(friendships.suggestions(userId, count));
+    }
+
+    @Override
+    public List<User> getFriendPath(int userId, int otherId, int maxDepth, int visitBudget) {
+        int[] ids = friendships.path(userId, otherId, maxDepth, visitBudget);
+        List<User> path = loadInOrder(ids);
+        // цепочка с удалённым пользователем недействительна
+        return path.size() == ids.length ? path : List.of();
+    }
+
+    // собственная транзакция к этому моменту закоммичена; откатиться может только внешняя, в которую она вошла
+    private void undoOnRollback(int userId, Runnable undo) {
+        TransactionHooks.afterRollback(() -> {
+            Lock lock = locks.of(userId);
+            lock.lock();
+            try {
+                undo.run();
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    @PostConstruct
+    public void rebuildIndexes() {
+        knownIds.clear();
+        jdbc.query("SELECT id FROM users", rs -> {
+            knownIds.add(rs.getInt("id"));
+        });
+
+        friendships.clear();
+        LongLongMap journalFriendships = journal.takeFriendships();
+        if (journalFriendships != null) {
+            journalFriendships.forEach((key, status) ->
+                    friendships.add(LongLongMap.first(key), LongLongMap.second(key)));
+        } else {
+            jdbc.query("SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id", rs -> {
+                friendships.add(rs.getInt("user_id"), rs.getInt("friend_id"));
+            });
+        }
+        log.info("Индексы наличия пользователей и дружбы построены");
     }
+
+    // пользователи в порядке ids; отсутствующие пропускаются
+    private List<User> loadInOrder(int[] ids) {
+        Map<Integer, User> loaded = new HashMap<>();
+        for (User u : loadByIds(ids)) {
+            loaded.put(u.getId(), u);
+        }
+        List<User> result = new ArrayList<>(loaded.size());
+        for (int id : ids) {
+            User u = loaded.get(id);
+            if (u != null) result.add(u);
+        }
+        return result;
+    }
+
+    // одна выборка по отсортированному списку id; пользователи, которых уже нет, пропускаются
+    private List<User> loadByIds(int[] ids) {
+        if (ids.length == 0) return List.of();
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbc);
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", Arrays.stream(ids).sorted().boxed().toList());
+        return named.query("SELECT * FROM users WHERE id IN (:ids) ORDER BY id", params, USER_ROW_MAPPER);
+    }
+
 }
@@ -2,18 +2,39 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
+    int PAGE_SIZE = 500;
+
     User create(User user);
 
     User update(User user);
 
-    List<User> getAll();
+    // страница пользователей с id > afterId, отсортированная по id
+    List<User> getAll(int afterId, int limit);
+
+    default List<User> getAll() {
+        List<User> all = new ArrayList<>();
+        List<User> page = getAll(0, PAGE_SIZE);
+        while (true) {
+            all.addAll(page);
+            if (page.size() < PAGE_SIZE) return all;
+            page = getAll(page.get(page.size() - 1).getId(), PAGE_SIZE);
+        }
+    }
+
+    // обходит всех пользователей по возрастанию id, не собирая их в памяти
+    void streamAll(Consumer<User> action);
 
     Optional<User> getById(int id);
 
+    // проверка без загрузки записи
+    boolean exists(int id);
+
     void addFriend(int userId, int friendId);
 
     void confirmFriend(int userId, int friendId);
@@ -23,4 +44,10 @@ public interface UserStorage {
     List<User> getFriends(int userId);
 
     List<User> getCommonFriends(int userId, int friendId);
+
+    // друзья друзей, упорядоченные по числу общих друзей
+    List<User> getFriendSuggestions(int userId, int count);
+
+    // кратчайшая цепочка друзей от userId до otherId включительно; пустой список, если в пределах ограничений её нет
+    List<User> getFriendPath(int userId, int otherId, int maxDepth, int visitBudget);
 }
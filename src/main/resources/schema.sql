@@ -52,7 +52,11 @@ CONSTRAINT fk_fr_friend FOREIGN KEY (friend_id) REFERENCES users(id) ON DELETE C
 CHECK (user_id <> friend_id)
 );
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INT NOT NULL DEFAULT 0;
+ALTER TABLE film_likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
 CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes(user_id);
+CREATE INDEX IF NOT EXISTS idx_film_likes_created ON film_likes(created_at);
 CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres(genre_id);
 CREATE INDEX IF NOT EXISTS idx_friendships_user ON friendships(user_id);
 CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships(friend_id);
\ No newline at end of file
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionLimitingDataSourceTest {
+
+    private final ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:limit;DB_CLOSE_DELAY=-1", "sa", ""),
+            1, Duration.ofMillis(50));
+
+    @Test
+    void rejectsWhenAllConnectionsInUse() throws Exception {
+        try (Connection first = dataSource.getConnection()) {
+            assertThat(first.isValid(1)).isTrue();
+            assertThat(dataSource.availablePermits()).isZero();
+
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class);
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void releasesPermitOnlyOnce() throws Exception {
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Sink;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SamplingSinkTest {
+
+    private final Sink delegate = mock(Sink.class);
+    private final HttpRequest request = mock(HttpRequest.class);
+    private final HttpResponse response = mock(HttpResponse.class);
+
+    @Test
+    void writesEverythingAtFullRate() throws Exception {
+        SamplingSink sink = new SamplingSink(delegate, 1.0);
+        for (int i = 0; i < 10; i++) {
+            sink.write(correlation("id-" + i), request, response);
+        }
+        verify(delegate, times(10)).write(any(Correlation.class), any(), any());
+    }
+
+    @Test
+    void writesNothingAtZeroRate() throws Exception {
+        SamplingSink sink = new SamplingSink(delegate, 0.0);
+        sink.write(correlation("id"), request, response);
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void sameDecisionForRequestAndResponse() throws Exception {
+        SamplingSink sink = new SamplingSink(delegate, 0.5);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            Correlation correlation = correlation("id-" + i);
+            sink.write(correlation, request);
+            sink.write(correlation, request, response);
+            long calls = mockingDetails(delegate).getInvocations().stream()
+                    .filter(inv -> inv.getArgument(0) == correlation)
+                    .count();
+            assertThat(calls).isIn(0L, 2L);
+            if (calls == 2) sampled++;
+        }
+        assertThat(sampled).isBetween(300, 700);
+    }
+
+    private static Correlation correlation(String id) {
+        Correlation correlation = mock(Correlation.class);
+        when(correlation.getId()).thenReturn(id);
+        return correlation;
+    }
+}
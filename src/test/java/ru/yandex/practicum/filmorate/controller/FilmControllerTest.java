@@ -4,6 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
@@ -205,4 +208,41 @@ public class FilmControllerTest {
 
         verify(filmService).createFilm(null);
     }
+
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingFilm() {
+        when(filmService.getFilmEtag(1)).thenReturn("W/\"film1-a-3-1\"");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/1");
+        request.addHeader("If-None-Match", "W/\"film1-a-3-1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Film result = controller.getFilmById(1, new ServletWebRequest(request, response));
+
+        assertNull(result);
+        assertEquals(304, response.getStatus());
+        verify(filmService, never()).getFilmById(anyInt());
+    }
+
+    @Test
+    void shouldReturnFilmWithEtag() {
+        Film film = new Film();
+        film.setId(1);
+        when(filmService.getFilmEtag(1)).thenReturn("W/\"film1-a-4-1\"");
+        when(filmService.getFilmById(1)).thenReturn(film);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/1");
+        request.addHeader("If-None-Match", "W/\"film1-a-3-1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertSame(film, controller.getFilmById(1, new ServletWebRequest(request, response)));
+        assertEquals("W/\"film1-a-4-1\"", response.getHeader("ETag"));
+    }
+
+    @Test
+    void shouldPageByCursorWithoutLimit() {
+        controller.getFilmsPageByCursor("YWZ0ZXI6NQ");
+
+        // размер страницы выбирает сервис, а не отдаётся весь список
+        verify(filmService).getFilmsPage("YWZ0ZXI6NQ", null);
+        verify(filmService, never()).getAllFilms();
+    }
 }
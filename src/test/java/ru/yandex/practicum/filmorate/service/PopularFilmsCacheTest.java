@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PopularFilmsCacheTest {
+
+    private final FilmVersions versions = new FilmVersions();
+    private final ReferenceCatalog catalog = mock(ReferenceCatalog.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<PopularFilmsCache.Query, List<Film>> loader = query -> {
+        loads.incrementAndGet();
+        Film film = new Film();
+        film.setId(1);
+        film.setName("Фильм");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        return List.of(film);
+    };
+
+    @Test
+    void servesCachedUntilFilmsChange() {
+        PopularFilmsCache cache = cache(Duration.ZERO);
+
+        PopularFilmsCache.Entry first = cache.get(top(10), loader);
+        assertThat(cache.get(top(10), loader)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(new String(first.json())).contains("\"name\":\"Фильм\"");
+
+        versions.touch(1);
+        assertThat(cache.version(top(10))).isEqualTo(versions.global());
+        assertThat(cache.get(top(10), loader)).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void servesStaleWithinWindow() {
+        PopularFilmsCache cache = cache(Duration.ofHours(1));
+
+        PopularFilmsCache.Entry first = cache.get(top(10), loader);
+        versions.touch(1);
+
+        assertThat(cache.get(top(10), loader)).isSameAs(first);
+        assertThat(cache.version(top(10))).isEqualTo(first.version());
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void keyedByQuery() {
+        PopularFilmsCache cache = cache(Duration.ZERO);
+
+        cache.get(top(10), loader);
+        cache.get(top(5), loader);
+        cache.get(new PopularFilmsCache.Query(10, 1, null), loader);
+        cache.get(new PopularFilmsCache.Query(10, 1, 2000), loader);
+        cache.get(new PopularFilmsCache.Query(10, 1, 2000), loader);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void returnsCopiesOfCachedFilms() {
+        PopularFilmsCache cache = cache(Duration.ZERO);
+
+        cache.get(top(10), loader).films().get(0).setName("Изменён");
+
+        PopularFilmsCache.Entry cached = cache.get(top(10), loader);
+        assertThat(cached.films()).extracting(Film::getName).containsExactly("Фильм");
+        assertThat(cached.films().get(0)).isNotSameAs(cached.films().get(0));
+        assertThat(loads).hasValue(1);
+    }
+
+    private static PopularFilmsCache.Query top(int count) {
+        return new PopularFilmsCache.Query(count, null, null);
+    }
+
+    private PopularFilmsCache cache(Duration maxStaleness) {
+        return new PopularFilmsCache(versions, catalog, objectMapper, new SimpleMeterRegistry(), maxStaleness, 100);
+    }
+}
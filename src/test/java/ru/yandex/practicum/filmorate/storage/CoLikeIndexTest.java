@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.CoLikeIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikeMatrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoLikeIndexTest {
+
+    private final LikeMatrix matrix = new LikeMatrix();
+
+    @Test
+    void ranksByCoLikes() {
+        matrix.add(1, 1);
+        matrix.add(2, 1);
+        matrix.add(3, 1);
+        matrix.add(1, 2);
+        matrix.add(3, 2);
+        matrix.add(1, 3);
+        matrix.add(3, 3);
+        matrix.add(4, 3);
+
+        // с фильмом 1 фильм 3 лайкали трое, 2 и 4 — по одному
+        assertThat(matrix.similar(1, 10)).containsExactly(3, 2, 4);
+        assertThat(matrix.similar(1, 1)).containsExactly(3);
+        assertThat(matrix.similar(4, 10)).containsExactly(1, 3);
+        assertThat(matrix.similar(99, 10)).isEmpty();
+
+        matrix.remove(3, 2);
+        matrix.remove(3, 3);
+        assertThat(matrix.similar(1, 10)).containsExactly(2, 3, 4);
+        matrix.remove(3, 1);
+        assertThat(matrix.similar(1, 10)).containsExactly(2, 4);
+
+        matrix.removeFilm(2);
+        assertThat(matrix.similar(1, 10)).containsExactly(4);
+    }
+
+    @Test
+    void keepsOnlyTopNeighbours() {
+        // у фильма 1 тысяча соседей по одному общему лайку и один сосед с пятью
+        for (int user = 1; user <= 1000; user++) {
+            matrix.add(1, user);
+            matrix.add(1 + user, user);
+        }
+        for (int user = 2001; user <= 2005; user++) {
+            matrix.add(1, user);
+            matrix.add(7, user);
+        }
+
+        assertThat(matrix.similar(1, 1)).containsExactly(7);
+        assertThat(matrix.similar(1, 1000)).hasSize(CoLikeIndex.TOP_N);
+    }
+
+    @Test
+    void ignoresUsersWithTooManyLikes() {
+        for (int film = 1; film <= CoLikeIndex.MAX_USER_LIKES; film++) {
+            matrix.add(film, 1);
+        }
+        matrix.add(1, 2);
+        matrix.add(3, 2);
+        assertThat(matrix.similar(1, 2)).containsExactly(3, 2);
+
+        // лайк сверх порога снимает все пары пользователя 1, снятие лайка возвращает их
+        matrix.add(CoLikeIndex.MAX_USER_LIKES + 1, 1);
+        assertThat(matrix.similar(1, 10)).containsExactly(3);
+        assertThat(matrix.similar(CoLikeIndex.MAX_USER_LIKES + 1, 10)).isEmpty();
+
+        matrix.remove(CoLikeIndex.MAX_USER_LIKES + 1, 1);
+        assertThat(matrix.similar(1, 2)).containsExactly(3, 2);
+    }
+}
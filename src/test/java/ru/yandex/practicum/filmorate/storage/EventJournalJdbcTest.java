@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// без транзакции теста: внутри неё записи журнала ждали бы коммита, которого не будет
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventJournalJdbcTest {
+    // заголовок сегмента и три записи: сегменты сменяются уже на четвёртой записи
+    private static final DataSize SMALL_SEGMENT = DataSize.ofBytes(16 + 17 * 3);
+
+    private final JdbcTemplate jdbc;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresStateFromSnapshotAndTail() {
+        EventJournal journal = open(false);
+        assertThat(journal.takeLikes().size()).isZero();
+
+        journal.liked(1, 2, 1000);
+        journal.liked(1, 3, 2000);
+        journal.liked(4, 2, 3000);
+        journal.unliked(1, 2);
+        journal.friendAdded(5, 6);
+        journal.friendConfirmed(5, 6);
+        journal.friendAdded(6, 7);
+        journal.friendRemoved(6, 7);
+        journal.friendAdded(7, 5);
+        journal.close();
+
+        EventJournal reopened = open(false);
+        LongLongMap likes = reopened.takeLikes();
+        assertThat(likes.size()).isEqualTo(2);
+        assertThat(likes.get(LongLongMap.pair(1, 3), -1)).isEqualTo(2000);
+        assertThat(likes.get(LongLongMap.pair(4, 2), -1)).isEqualTo(3000);
+        assertThat(likes.containsKey(LongLongMap.pair(1, 2))).isFalse();
+
+        LongLongMap friendships = reopened.takeFriendships();
+        assertThat(friendships.size()).isEqualTo(2);
+        assertThat(friendships.get(LongLongMap.pair(5, 6), 0)).isEqualTo(EventJournal.CONFIRMED);
+        assertThat(friendships.get(LongLongMap.pair(7, 5), 0)).isEqualTo(EventJournal.PENDING);
+
+        assertThat(reopened.takeLikes()).isNull();
+        reopened.close();
+    }
+
+    @Test
+    void compactFoldsClosedSegments() throws IOException {
+        EventJournal journal = open(false);
+        for (int user = 1; user <= 5; user++) {
+            journal.liked(1, user, user);
+        }
+        journal.compact();
+        assertThat(files()).containsExactlyInAnyOrder("snapshot.bin", "journal-0000000000000003.log");
+
+        journal.unliked(1, 1);
+        journal.close();
+
+        EventJournal reopened = open(false);
+        assertThat(reopened.takeLikes().size()).isEqualTo(4);
+        reopened.close();
+    }
+
+    @Test
+    void verifyReplacesStateThatDiffersFromDatabase() {
+        EventJournal journal = open(false);
+        journal.liked(1, 2, 1000);
+        journal.close();
+
+        // в film_likes ничего нет — лайк из журнала считается расхождением
+        EventJournal verified = open(true);
+        assertThat(verified.takeLikes().size()).isZero();
+        verified.close();
+
+        EventJournal reopened = open(true);
+        assertThat(reopened.takeLikes().size()).isZero();
+        reopened.close();
+    }
+
+    @Test
+    void readsDatabaseAfterUncleanShutdown() {
+        EventJournal crashed = open(false);
+        crashed.liked(1, 2, 1000);
+
+        // без close(): метки штатного закрытия нет, и хвосту журнала не доверяем — в film_likes лайка нет
+        EventJournal reopened = open(false);
+        assertThat(reopened.takeLikes().size()).isZero();
+        reopened.close();
+    }
+
+    private EventJournal open(boolean verify) {
+        EventJournal journal = new EventJournal(jdbc, true, dir, SMALL_SEGMENT, Duration.ofHours(1), verify);
+        journal.open();
+        return journal;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).toList();
+        }
+    }
+}
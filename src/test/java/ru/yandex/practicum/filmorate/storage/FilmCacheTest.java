@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FilmCacheTest {
+
+    private final ReferenceCatalog catalog = mock(ReferenceCatalog.class);
+    private final FilmCache cache = new FilmCache(catalog, 100);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final IntFunction<Optional<Film>> loader = id -> {
+        loads.incrementAndGet();
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Фильм " + loads.get());
+        return Optional.of(film);
+    };
+
+    @AfterEach
+    void afterEach() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void cachesOutsideTransaction() {
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 1");
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void doesNotCacheInsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        cache.get(1, loader);
+        cache.get(1, loader);
+        assertThat(loads).hasValue(2);
+
+        // после транзакции незакоммиченная версия не отдаётся — фильм загружается заново
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 3");
+    }
+
+    @Test
+    void servesCommittedEntryInsideTransaction() {
+        cache.get(1, loader);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void reloadsFilmAfterCatalogReload() {
+        cache.get(1, loader);
+
+        // названия жанров и MPA в закэшированном фильме могли устареть
+        when(catalog.getVersion()).thenReturn(1L);
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 2");
+        assertThat(cache.get(1, loader)).get().extracting(Film::getName).isEqualTo("Фильм 2");
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -6,14 +6,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
@@ -23,11 +34,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 @JdbcTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import({FilmDbStorage.class, UserDbStorage.class})
+@Import({FilmDbStorage.class, UserDbStorage.class, ReferenceCatalog.class, GenreDbStorage.class, MpaDbStorage.class,
+        LikeWriteBuffer.class, FilmCache.class, EventJournal.class})
 class FilmDbStorageJdbcTest {
 
     private final FilmDbStorage filmStorage;
     private final UserDbStorage userStorage;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbc;
 
     @Test
     void createAndGetById() {
@@ -179,4 +193,252 @@ class FilmDbStorageJdbcTest {
         assertThat(top).extracting(Film::getId)
                 .containsSubsequence(f1.getId(), f2.getId(), f3.getId());
     }
+
+    @Test
+    void popularAfterDuplicateAndRemovedLikes() {
+        User u1 = new User();
+        u1.setEmail("p1@test"); u1.setLogin("p1"); u1.setName("p1");
+        u1.setBirthday(LocalDate.of(1990,1,1));
+        u1 = userStorage.create(u1);
+
+        User u2 = new User();
+        u2.setEmail("p2@test"); u2.setLogin("p2"); u2.setName("p2");
+        u2.setBirthday(LocalDate.of(1990,1,1));
+        u2 = userStorage.create(u2);
+
+        Film f1 = new Film();
+        f1.setName("P1"); f1.setDescription("d1");
+        f1.setReleaseDate(LocalDate.of(2000,1,1)); f1.setDuration(100);
+        Mpa m1 = new Mpa(); m1.setId(1); f1.setMpa(m1);
+        f1 = filmStorage.create(f1);
+
+        Film f2 = new Film();
+        f2.setName("P2"); f2.setDescription("d2");
+        f2.setReleaseDate(LocalDate.of(2000,1,1)); f2.setDuration(100);
+        Mpa m2 = new Mpa(); m2.setId(1); f2.setMpa(m2);
+        f2 = filmStorage.create(f2);
+
+        filmStorage.addLike(f1.getId(), u1.getId());
+        filmStorage.addLike(f1.getId(), u1.getId()); // повторный лайк не считается
+        filmStorage.addLike(f2.getId(), u1.getId());
+        filmStorage.addLike(f2.getId(), u2.getId());
+        assertThat(filmStorage.getPopular(2)).extracting(Film::getId)
+                .containsExactly(f2.getId(), f1.getId());
+
+        filmStorage.removeLike(f2.getId(), u1.getId());
+        filmStorage.removeLike(f2.getId(), u2.getId());
+        filmStorage.removeLike(f2.getId(), u2.getId()); // повторное удаление ничего не меняет
+        assertThat(filmStorage.getPopular(2)).extracting(Film::getId)
+                .containsExactly(f1.getId(), f2.getId());
+        assertThat(jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Long.class, f1.getId()))
+                .isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Long.class, f2.getId()))
+                .isZero();
+    }
+
+    @Test
+    void updateChangesOnlyDifferentGenres() {
+        Film f = new Film();
+        f.setName("G"); f.setDescription("genres");
+        f.setReleaseDate(LocalDate.of(2001,1,1)); f.setDuration(90);
+        Mpa m = new Mpa(); m.setId(1); f.setMpa(m);
+        LinkedHashSet<Genre> gset = new LinkedHashSet<>();
+        Genre g1 = new Genre(); g1.setId(1); gset.add(g1);
+        Genre g2 = new Genre(); g2.setId(2); gset.add(g2);
+        f.setGenres(gset);
+        Film created = filmStorage.create(f);
+
+        // тот же набор жанров — строки film_genres не трогаются
+        Film same = filmStorage.update(created);
+        assertThat(same.getGenres()).extracting(Genre::getId).containsExactly(1, 2);
+
+        LinkedHashSet<Genre> changed = new LinkedHashSet<>();
+        Genre g4 = new Genre(); g4.setId(4); changed.add(g4);
+        Genre g2b = new Genre(); g2b.setId(2); changed.add(g2b);
+        created.setGenres(changed);
+        Film updated = filmStorage.update(created);
+        assertThat(updated.getGenres()).extracting(Genre::getId).containsExactly(2, 4);
+
+        created.setGenres(new LinkedHashSet<>());
+        assertThat(filmStorage.update(created).getGenres()).isEmpty();
+    }
+
+    @Test
+    void streamAllMergesGenres() {
+        Film a = new Film();
+        a.setName("SA"); a.setDescription("stream A");
+        a.setReleaseDate(LocalDate.of(2000,1,1)); a.setDuration(90);
+        Mpa m1 = new Mpa(); m1.setId(1); a.setMpa(m1);
+        LinkedHashSet<Genre> genresA = new LinkedHashSet<>();
+        Genre g3 = new Genre(); g3.setId(3); genresA.add(g3);
+        Genre g1 = new Genre(); g1.setId(1); genresA.add(g1);
+        a.setGenres(genresA);
+        a = filmStorage.create(a);
+
+        Film b = new Film();
+        b.setName("SB"); b.setDescription("stream B");
+        b.setReleaseDate(LocalDate.of(2000,1,1)); b.setDuration(80);
+        Mpa m2 = new Mpa(); m2.setId(2); b.setMpa(m2);
+        b = filmStorage.create(b);
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+
+        final int aId = a.getId();
+        final int bId = b.getId();
+        Film filmA = streamed.stream().filter(x -> x.getId() == aId).findFirst().orElseThrow();
+        Film filmB = streamed.stream().filter(x -> x.getId() == bId).findFirst().orElseThrow();
+
+        assertThat(streamed).extracting(Film::getId).isSorted();
+        assertThat(filmA.getGenres()).extracting(Genre::getId).containsExactly(1, 3);
+        assertThat(filmA.getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(filmB.getGenres()).isEmpty();
+        assertThat(filmB.getMpa().getName()).isEqualTo("PG");
+    }
+
+    @Test
+    void createAllInBatch() {
+        Film a = new Film();
+        a.setName("BA"); a.setDescription("batch A");
+        a.setReleaseDate(LocalDate.of(2000,1,1)); a.setDuration(90);
+        Mpa m1 = new Mpa(); m1.setId(1); a.setMpa(m1);
+        LinkedHashSet<Genre> genresA = new LinkedHashSet<>();
+        Genre g2 = new Genre(); g2.setId(2); genresA.add(g2);
+        Genre g1 = new Genre(); g1.setId(1); genresA.add(g1);
+        a.setGenres(genresA);
+
+        Film b = new Film();
+        b.setName("BB"); b.setDescription("batch B");
+        b.setReleaseDate(LocalDate.of(2000,1,1)); b.setDuration(80);
+        Mpa m3 = new Mpa(); m3.setId(3); b.setMpa(m3);
+
+        List<Integer> ids = filmStorage.createAll(List.of(a, b));
+
+        assertThat(ids).hasSize(2).doesNotHaveDuplicates();
+        assertThat(filmStorage.getById(ids.get(0))).get()
+                .satisfies(f -> assertThat(f.getName()).isEqualTo("BA"))
+                .satisfies(f -> assertThat(f.getGenres()).extracting(Genre::getId).containsExactly(1, 2));
+        assertThat(filmStorage.getById(ids.get(1))).get()
+                .satisfies(f -> assertThat(f.getMpa().getName()).isEqualTo("PG-13"))
+                .satisfies(f -> assertThat(f.getGenres()).isEmpty());
+    }
+
+    @Test
+    void rolledBackCreateIsRemovedFromIndexes() {
+        Film kept = new Film();
+        kept.setName("Kept"); kept.setDescription("rollback");
+        kept.setReleaseDate(LocalDate.of(2000,1,1)); kept.setDuration(90);
+        Mpa m1 = new Mpa(); m1.setId(1); kept.setMpa(m1);
+        kept = filmStorage.create(kept);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Film rolledBack = tx.execute(status -> {
+            Film f = new Film();
+            f.setName("Phantom"); f.setDescription("rollback");
+            f.setReleaseDate(LocalDate.of(2000,1,1)); f.setDuration(90);
+            Mpa m2 = new Mpa(); m2.setId(1); f.setMpa(m2);
+            Film created = filmStorage.create(f);
+            // своя транзакция видит фильм в индексах
+            assertThat(filmStorage.search("phantom", 10)).extracting(Film::getId).containsExactly(created.getId());
+            status.setRollbackOnly();
+            return created;
+        });
+
+        assertThat(filmStorage.exists(rolledBack.getId())).isFalse();
+        assertThat(filmStorage.search("rollback", 10)).extracting(Film::getId).containsExactly(kept.getId());
+        assertThat(filmStorage.getPopular(1, null, 2000)).extracting(Film::getId).hasSize(1);
+    }
+
+    @Test
+    void rolledBackBatchLeavesNoIds() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Integer> ids = tx.execute(status -> {
+            Film f = new Film();
+            f.setName("Batch phantom"); f.setDescription("d");
+            f.setReleaseDate(LocalDate.of(2000,1,1)); f.setDuration(90);
+            Mpa m = new Mpa(); m.setId(1); f.setMpa(m);
+            List<Integer> created = filmStorage.createAll(List.of(f));
+            // до коммита индексы пакет не видят
+            assertThat(filmStorage.exists(created.get(0))).isFalse();
+            status.setRollbackOnly();
+            return created;
+        });
+
+        assertThat(filmStorage.exists(ids.get(0))).isFalse();
+    }
+
+    @Test
+    void getByIdReturnsCopiesOfCachedFilm() {
+        Film f = new Film();
+        f.setName("C"); f.setDescription("cached");
+        f.setReleaseDate(LocalDate.of(2000,1,1)); f.setDuration(90);
+        Mpa m = new Mpa(); m.setId(1); f.setMpa(m);
+        Film created = filmStorage.create(f);
+
+        Film first = filmStorage.getById(created.getId()).orElseThrow();
+        first.setName("изменено");
+        first.getMpa().setName("изменено");
+        Film second = filmStorage.getById(created.getId()).orElseThrow();
+        assertThat(second.getName()).isEqualTo("C");
+        assertThat(second.getMpa().getName()).isEqualTo("G");
+
+        created.setName("C2");
+        filmStorage.update(created);
+        assertThat(filmStorage.getById(created.getId()).orElseThrow().getName()).isEqualTo("C2");
+    }
+
+    @Test
+    void popularByGenreAndYear() {
+        User u1 = new User();
+        u1.setEmail("pg1@test"); u1.setLogin("pg1"); u1.setName("pg1");
+        u1.setBirthday(LocalDate.of(1990,1,1));
+        u1 = userStorage.create(u1);
+
+        User u2 = new User();
+        u2.setEmail("pg2@test"); u2.setLogin("pg2"); u2.setName("pg2");
+        u2.setBirthday(LocalDate.of(1990,1,1));
+        u2 = userStorage.create(u2);
+
+        // комедия 1977 года
+        Film a = new Film();
+        a.setName("PA"); a.setDescription("a");
+        a.setReleaseDate(LocalDate.of(1977,1,1)); a.setDuration(100);
+        Mpa m1 = new Mpa(); m1.setId(1); a.setMpa(m1);
+        LinkedHashSet<Genre> comedy = new LinkedHashSet<>();
+        Genre g1 = new Genre(); g1.setId(1); comedy.add(g1);
+        a.setGenres(comedy);
+        a = filmStorage.create(a);
+
+        // драма 1977 года
+        Film b = new Film();
+        b.setName("PB"); b.setDescription("b");
+        b.setReleaseDate(LocalDate.of(1977,6,1)); b.setDuration(100);
+        Mpa m2 = new Mpa(); m2.setId(1); b.setMpa(m2);
+        LinkedHashSet<Genre> drama = new LinkedHashSet<>();
+        Genre g2 = new Genre(); g2.setId(2); drama.add(g2);
+        b.setGenres(drama);
+        b = filmStorage.create(b);
+
+        filmStorage.addLike(b.getId(), u1.getId());
+        filmStorage.addLike(b.getId(), u2.getId());
+        filmStorage.addLike(a.getId(), u1.getId());
+
+        assertThat(filmStorage.getPopular(10, null, 1977)).extracting(Film::getId)
+                .containsExactly(b.getId(), a.getId());
+        assertThat(filmStorage.getPopular(10, 1, 1977)).extracting(Film::getId)
+                .containsExactly(a.getId());
+        assertThat(filmStorage.getPopular(10, 2, 1978)).isEmpty();
+
+        // после смены жанра фильм переезжает в другой раздел вместе со своими лайками
+        LinkedHashSet<Genre> nowComedy = new LinkedHashSet<>();
+        Genre g1b = new Genre(); g1b.setId(1); nowComedy.add(g1b);
+        b.setGenres(nowComedy);
+        filmStorage.update(b);
+        assertThat(filmStorage.getPopular(10, 1, 1977)).extracting(Film::getId)
+                .containsExactly(b.getId(), a.getId());
+        assertThat(filmStorage.getPopular(10, 2, null)).extracting(Film::getId)
+                .doesNotContain(b.getId());
+    }
 }
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+    private final Map<Integer, Long> likes = Map.of(1, 5L, 2, 1L, 3, 9L, 4, 0L, 5, 0L, 6, 7L);
+
+    @Test
+    void ranksNameAboveDescriptionAndByLikes() {
+        index.put(film(1, "Звёздные войны", "космическая опера"));
+        index.put(film(2, "Звёздный путь", "космос"));
+        index.put(film(3, "Интерстеллар", "путешествие через звёздные врата"));
+        index.put(film(4, "Гравитация", "космос"));
+
+        // префикс, регистр и ё не важны; совпадения в названии выше, при равенстве — по лайкам
+        assertThat(index.search("ЗВЕЗД", 10, this::likes)).containsExactly(1, 2, 3);
+        assertThat(index.search("звезд", 2, this::likes)).containsExactly(1, 2);
+        assertThat(index.search("пут", 10, this::likes)).containsExactly(2, 3);
+
+        // точное слово названия весит больше префикса, даже если лайков меньше
+        index.put(film(5, "Мир", null));
+        index.put(film(6, "Мираж", null));
+        assertThat(index.search("мир", 10, this::likes)).containsExactly(5, 6);
+        // все слова запроса должны найтись
+        assertThat(index.search("косм звезд", 10, this::likes)).containsExactly(1, 2);
+        assertThat(index.search("матрица", 10, this::likes)).isEmpty();
+        assertThat(index.search(" - ", 10, this::likes)).isEmpty();
+    }
+
+    @Test
+    void shortWordsMatchOnlyWholeWords() {
+        index.put(film(1, "Я легенда", null));
+        index.put(film(2, "Ямакаси", "я"));
+
+        // однобуквенный запрос не разворачивается в префикс: Ямакаси находится только по описанию
+        assertThat(index.search("я", 10, this::likes)).containsExactly(1, 2);
+        assertThat(index.search("ям", 10, this::likes)).isEmpty();
+        assertThat(index.search("ямак", 10, this::likes)).containsExactly(2);
+    }
+
+    @Test
+    void updateReplacesWords() {
+        index.put(film(1, "Старое название", null));
+        index.put(film(1, "Новое название", null));
+
+        assertThat(index.search("стар", 10, this::likes)).isEmpty();
+        assertThat(index.search("нов", 10, this::likes)).containsExactly(1);
+
+        index.remove(1);
+        assertThat(index.search("назв", 10, this::likes)).isEmpty();
+    }
+
+    private long likes(int id) {
+        return likes.getOrDefault(id, 0L);
+    }
+
+    private static Film film(int id, String name, String description) {
+        Film f = new Film();
+        f.setId(id);
+        f.setName(name);
+        f.setDescription(description);
+        return f;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdPresenceIndexTest {
+
+    private final IdPresenceIndex index = new IdPresenceIndex();
+
+    @Test
+    void addGrowsAndKeepsExistingBits() {
+        index.add(1);
+        index.add(63);
+        index.add(100_000);
+
+        assertThat(index.contains(1)).isTrue();
+        assertThat(index.contains(63)).isTrue();
+        assertThat(index.contains(100_000)).isTrue();
+        assertThat(index.contains(2)).isFalse();
+        assertThat(index.contains(200_000)).isFalse();
+    }
+
+    @Test
+    void removeAndClear() {
+        index.add(5);
+        index.add(6);
+        index.remove(5);
+        index.remove(1_000_000);
+
+        assertThat(index.contains(5)).isFalse();
+        assertThat(index.contains(6)).isTrue();
+
+        index.clear();
+        assertThat(index.contains(6)).isFalse();
+    }
+}
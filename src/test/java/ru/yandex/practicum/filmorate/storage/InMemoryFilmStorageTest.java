@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryFilmStorageTest {
+
+    private InMemoryFilmStorage filmStorage;
+
+    @BeforeEach
+    void beforeEach() {
+        ReferenceCatalog catalog = mock(ReferenceCatalog.class);
+        when(catalog.findMpa(anyInt())).thenAnswer(inv -> {
+            Mpa m = new Mpa();
+            m.setId(inv.getArgument(0));
+            m.setName("MPA " + m.getId());
+            return Optional.of(m);
+        });
+        when(catalog.findGenre(anyInt())).thenAnswer(inv -> {
+            Genre g = new Genre();
+            g.setId(inv.getArgument(0));
+            g.setName("Жанр " + g.getId());
+            return Optional.of(g);
+        });
+        filmStorage = new InMemoryFilmStorage(catalog);
+    }
+
+    @Test
+    void createFillsReferenceNamesAndSortsGenres() {
+        Film f = film("F");
+        LinkedHashSet<Genre> gs = new LinkedHashSet<>();
+        Genre g3 = new Genre(); g3.setId(3); gs.add(g3);
+        Genre g1 = new Genre(); g1.setId(1); gs.add(g1);
+        f.setGenres(gs);
+
+        Film created = filmStorage.create(f);
+        Film found = filmStorage.getById(created.getId()).orElseThrow();
+
+        assertThat(found.getMpa().getName()).isEqualTo("MPA 1");
+        assertThat(found.getGenres()).extracting(Genre::getId).containsExactly(1, 3);
+
+        found.setName("изменено снаружи");
+        assertThat(filmStorage.getById(created.getId()).orElseThrow().getName()).isEqualTo("F");
+    }
+
+    @Test
+    void updateUnknownFilm() {
+        Film f = film("X");
+        f.setId(999);
+        assertThatThrownBy(() -> filmStorage.update(f)).isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void pagesAndPopular() {
+        Film a = filmStorage.create(film("A"));
+        Film b = filmStorage.create(film("B"));
+        Film c = filmStorage.create(film("C"));
+
+        assertThat(filmStorage.getAll(a.getId(), 1)).extracting(Film::getId).containsExactly(b.getId());
+
+        assertThat(filmStorage.addLike(c.getId(), 1)).isTrue();
+        assertThat(filmStorage.addLike(c.getId(), 1)).isFalse();
+        filmStorage.addLike(c.getId(), 2);
+        filmStorage.addLike(b.getId(), 1);
+        assertThat(filmStorage.removeLike(a.getId(), 1)).isFalse();
+
+        List<Film> top = filmStorage.getPopular(3);
+        assertThat(top).extracting(Film::getId).containsExactly(c.getId(), b.getId(), a.getId());
+    }
+
+    @Test
+    void concurrentLikesAreCountedOnce() throws Exception {
+        Film f = filmStorage.create(film("hot"));
+        Film other = filmStorage.create(film("other"));
+        filmStorage.addLike(other.getId(), 1);
+        filmStorage.addLike(other.getId(), 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int user = 1; user <= 1000; user++) {
+            int userId = user;
+            executor.submit(() -> filmStorage.addLike(f.getId(), userId));
+            executor.submit(() -> filmStorage.addLike(f.getId(), userId));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int user = 3; user <= 1000; user++) {
+            filmStorage.removeLike(f.getId(), user);
+        }
+        // у обоих фильмов по 2 лайка, при равенстве первым идёт меньший id
+        assertThat(filmStorage.getPopular(2)).extracting(Film::getId).containsExactly(f.getId(), other.getId());
+    }
+
+    private static Film film(String name) {
+        Film f = new Film();
+        f.setName(name);
+        f.setDescription("d");
+        f.setReleaseDate(LocalDate.of(2000, 1, 1));
+        f.setDuration(100);
+        Mpa m = new Mpa();
+        m.setId(1);
+        f.setMpa(m);
+        return f;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryUserStorageTest {
+
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void friendsAndCommonFriends() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+        User d = userStorage.create(user("d"));
+
+        userStorage.addFriend(a.getId(), d.getId());
+        userStorage.addFriend(a.getId(), c.getId());
+        userStorage.addFriend(b.getId(), c.getId());
+        userStorage.addFriend(b.getId(), d.getId());
+
+        assertThat(userStorage.getFriends(a.getId())).extracting(User::getId).containsExactly(c.getId(), d.getId());
+        assertThat(userStorage.getCommonFriends(a.getId(), b.getId())).extracting(User::getId)
+                .containsExactly(c.getId(), d.getId());
+
+        userStorage.removeFriend(a.getId(), d.getId());
+        assertThat(userStorage.getCommonFriends(a.getId(), b.getId())).extracting(User::getId)
+                .containsExactly(c.getId());
+    }
+
+    @Test
+    void friendSuggestionsByMutualFriends() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+        User d = userStorage.create(user("d"));
+        User e = userStorage.create(user("e"));
+        User f = userStorage.create(user("f"));
+
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.addFriend(a.getId(), c.getId());
+        userStorage.addFriend(b.getId(), d.getId());
+        userStorage.addFriend(b.getId(), e.getId());
+        userStorage.addFriend(c.getId(), d.getId());
+        userStorage.addFriend(c.getId(), a.getId());
+        userStorage.addFriend(c.getId(), b.getId());
+        // f уже отправил заявку пользователю a — в подсказках его быть не должно
+        userStorage.addFriend(f.getId(), a.getId());
+        userStorage.addFriend(b.getId(), f.getId());
+
+        assertThat(userStorage.getFriendSuggestions(a.getId(), 10)).extracting(User::getId)
+                .containsExactly(d.getId(), e.getId());
+        assertThat(userStorage.getFriendSuggestions(a.getId(), 1)).extracting(User::getId)
+                .containsExactly(d.getId());
+        assertThat(userStorage.getFriendSuggestions(d.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    void shortestFriendPath() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+        User d = userStorage.create(user("d"));
+        User e = userStorage.create(user("e"));
+        User f = userStorage.create(user("f"));
+
+        userStorage.addFriend(a.getId(), e.getId());
+        userStorage.addFriend(e.getId(), f.getId());
+        userStorage.addFriend(f.getId(), c.getId());
+        userStorage.addFriend(c.getId(), d.getId());
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.addFriend(b.getId(), c.getId());
+
+        assertThat(userStorage.getFriendPath(a.getId(), d.getId(), 6, 1000)).extracting(User::getId)
+                .containsExactly(a.getId(), b.getId(), c.getId(), d.getId());
+        assertThat(userStorage.getFriendPath(a.getId(), a.getId(), 6, 1000)).extracting(User::getId)
+                .containsExactly(a.getId());
+        // заявки направленные: обратной цепочки нет
+        assertThat(userStorage.getFriendPath(d.getId(), a.getId(), 6, 1000)).isEmpty();
+        assertThat(userStorage.getFriendPath(a.getId(), d.getId(), 2, 1000)).isEmpty();
+        assertThat(userStorage.getFriendPath(a.getId(), d.getId(), 6, 3)).isEmpty();
+
+        userStorage.removeFriend(b.getId(), c.getId());
+        assertThat(userStorage.getFriendPath(a.getId(), d.getId(), 6, 1000)).extracting(User::getId)
+                .containsExactly(a.getId(), e.getId(), f.getId(), c.getId(), d.getId());
+    }
+
+    @Test
+    void confirmOnlyPendingRequest() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+
+        assertThatThrownBy(() -> userStorage.confirmFriend(a.getId(), b.getId()))
+                .isInstanceOf(NotFoundException.class);
+
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.confirmFriend(a.getId(), b.getId());
+        assertThatThrownBy(() -> userStorage.confirmFriend(a.getId(), b.getId()))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void pages() {
+        User a = userStorage.create(user("a"));
+        User b = userStorage.create(user("b"));
+        User c = userStorage.create(user("c"));
+
+        assertThat(userStorage.getAll(0, 2)).extracting(User::getId).containsExactly(a.getId(), b.getId());
+        assertThat(userStorage.getAll(b.getId(), 2)).extracting(User::getId).containsExactly(c.getId());
+        assertThat(userStorage.getAll()).hasSize(3);
+    }
+
+    private static User user(String login) {
+        User u = new User();
+        u.setEmail(login + "@test");
+        u.setLogin(login);
+        u.setName(login);
+        u.setBirthday(LocalDate.of(1990, 1, 1));
+        return u;
+    }
+}
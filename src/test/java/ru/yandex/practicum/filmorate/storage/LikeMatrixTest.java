@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.LikeMatrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeMatrixTest {
+
+    private final LikeMatrix matrix = new LikeMatrix();
+
+    @Test
+    void recommendsFilmsOfMostSimilarUsers() {
+        // пользователь 1 лайкнул фильмы 1, 2, 3
+        matrix.add(1, 1);
+        matrix.add(2, 1);
+        matrix.add(3, 1);
+        // у пользователя 2 три общих лайка, у пользователя 3 — один
+        matrix.add(1, 2);
+        matrix.add(2, 2);
+        matrix.add(3, 2);
+        matrix.add(10, 2);
+        matrix.add(1, 3);
+        matrix.add(20, 3);
+        matrix.add(10, 3);
+
+        assertThat(matrix.recommend(1, 10)).containsExactly(10, 20);
+        assertThat(matrix.recommend(1, 1)).containsExactly(10);
+        assertThat(matrix.recommend(99, 10)).isEmpty();
+    }
+
+    @Test
+    void splitsLargeProfilesAcrossTasks() {
+        for (int film = 1; film <= 500; film++) {
+            matrix.add(film, 1);
+            if (film % 2 == 0) matrix.add(film, 2);
+            if (film % 5 == 0) matrix.add(film, 3);
+        }
+        matrix.add(1000, 2);
+        matrix.add(2000, 3);
+        matrix.add(2000, 2);
+
+        // 250 общих лайков с пользователем 2 и 100 — с пользователем 3
+        assertThat(matrix.recommend(1, 10)).containsExactly(2000, 1000);
+    }
+
+    @Test
+    void samplesLikersOfPopularFilmAcrossAllUsers() {
+        matrix.add(1, 1);
+        matrix.add(2, 1);
+        for (int user = 2; user <= 6001; user++) {
+            matrix.add(1, user);
+        }
+        matrix.add(2, 6001);
+        matrix.add(3, 6001);
+
+        // у фильма 1 лайкнувших втрое больше лимита, но самый новый из них всё равно попадает в выборку
+        // и с двумя общими лайками становится ближайшим соседом
+        assertThat(matrix.recommend(1, 10)).containsExactly(3);
+    }
+
+    @Test
+    void removeKeepsBothSidesInSync() {
+        matrix.add(1, 1);
+        matrix.add(1, 2);
+        assertThat(matrix.add(1, 1)).isFalse();
+
+        assertThat(matrix.remove(1, 1)).isTrue();
+        assertThat(matrix.films(1)).isEmpty();
+        assertThat(matrix.likers(1)).containsExactly(2);
+
+        matrix.removeFilm(1);
+        assertThat(matrix.likers(1)).isEmpty();
+        assertThat(matrix.films(2)).isEmpty();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({FilmDbStorage.class, UserDbStorage.class, ReferenceCatalog.class, GenreDbStorage.class, MpaDbStorage.class,
+        LikeWriteBuffer.class, FilmCache.class, EventJournal.class})
+@TestPropertySource(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval=1h",
+        "filmorate.likes.write-behind.capacity=3"
+})
+class LikeWriteBufferJdbcTest {
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final LikeWriteBuffer likeBuffer;
+    private final JdbcTemplate jdbc;
+
+    @Test
+    void coalescesAndFlushesInBatch() {
+        User u1 = user("wb1");
+        User u2 = user("wb2");
+        Film f = film("WB");
+
+        long before = System.currentTimeMillis();
+        filmStorage.addLike(f.getId(), u1.getId());
+        long after = System.currentTimeMillis();
+        filmStorage.addLike(f.getId(), u2.getId());
+        filmStorage.removeLike(f.getId(), u2.getId()); // гасит отложенный лайк u2
+        filmStorage.addLike(f.getId(), u1.getId()); // повтор не меняет состояние
+
+        assertThat(likeBuffer.pendingSize()).isEqualTo(1);
+        assertThat(likesInDb(f.getId())).isZero();
+        // популярность видит лайк ещё до записи в БД
+        assertThat(filmStorage.getPopular(1)).extracting(Film::getId).containsExactly(f.getId());
+
+        likeBuffer.flush();
+
+        assertThat(likeBuffer.pendingSize()).isZero();
+        assertThat(likesInDb(f.getId())).isEqualTo(1);
+        assertThat(jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, f.getId()))
+                .isEqualTo(1);
+        // время лайка — момент addLike, а не момент записи пачки
+        assertThat(jdbc.queryForObject("SELECT created_at FROM film_likes WHERE film_id = ?", Timestamp.class,
+                f.getId()).getTime()).isBetween(before, after);
+
+        filmStorage.removeLike(f.getId(), u1.getId());
+        likeBuffer.flush();
+        assertThat(likesInDb(f.getId())).isZero();
+    }
+
+    @Test
+    void rejectsNewChangesWhenFull() {
+        Film f = film("Full");
+        User u1 = user("full1");
+        User u2 = user("full2");
+        User u3 = user("full3");
+        User u4 = user("full4");
+        filmStorage.addLike(f.getId(), u1.getId());
+        filmStorage.addLike(f.getId(), u2.getId());
+        filmStorage.addLike(f.getId(), u3.getId());
+
+        assertThatThrownBy(() -> filmStorage.addLike(f.getId(), u4.getId())).isInstanceOf(OverloadedException.class);
+        assertThat(likeBuffer.pendingSize()).isEqualTo(3);
+
+        // снятие отложенного лайка места не требует и освобождает его
+        filmStorage.removeLike(f.getId(), u1.getId());
+        assertThat(filmStorage.addLike(f.getId(), u4.getId())).isTrue();
+        likeBuffer.flush();
+        assertThat(likesInDb(f.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void dropsRowsRejectedByDatabase() {
+        User u = user("poison");
+        Film f = film("Poison");
+        filmStorage.addLike(f.getId(), u.getId());
+        // фильма нет в БД — строку отвергнет внешний ключ
+        filmStorage.addLike(f.getId() + 1000, u.getId());
+
+        likeBuffer.flush();
+
+        assertThat(likeBuffer.pendingSize()).isZero();
+        assertThat(likesInDb(f.getId())).isEqualTo(1);
+        assertThat(likesInDb(f.getId() + 1000)).isZero();
+        assertThat(jdbc.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, f.getId()))
+                .isEqualTo(1);
+    }
+
+    private int likesInDb(int filmId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private User user(String login) {
+        User u = new User();
+        u.setEmail(login + "@test"); u.setLogin(login); u.setName(login);
+        u.setBirthday(LocalDate.of(1990, 1, 1));
+        return userStorage.create(u);
+    }
+
+    private Film film(String name) {
+        Film f = new Film();
+        f.setName(name); f.setDescription("d");
+        f.setReleaseDate(LocalDate.of(2000, 1, 1)); f.setDuration(100);
+        Mpa m = new Mpa(); m.setId(1); f.setMpa(m);
+        return filmStorage.create(f);
+    }
+}
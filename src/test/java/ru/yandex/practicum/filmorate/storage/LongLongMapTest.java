@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLongMapTest {
+
+    @Test
+    void keyRoundTrip() {
+        long key = LongLongMap.pair(7, 42);
+        assertThat(LongLongMap.first(key)).isEqualTo(7);
+        assertThat(LongLongMap.second(key)).isEqualTo(42);
+    }
+
+    @Test
+    void signedCountersAndTop() {
+        LongLongMap counts = new LongLongMap();
+        counts.add(5, 2);
+        counts.add(3, 2);
+        counts.add(9, 1);
+        counts.add(7, -1);
+        assertThat(counts.topIds(10)).containsExactly(3, 5, 9);
+        assertThat(counts.topIds(1)).containsExactly(3);
+
+        // отрицательный счётчик хранится и гасится последующим +1
+        counts.add(7, 1);
+        assertThat(counts.containsKey(7)).isFalse();
+        counts.add(5, -2);
+        assertThat(counts.size()).isEqualTo(2);
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        LongLongMap table = new LongLongMap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            // узкий диапазон ключей — много коллизий и сдвигов при удалении
+            long key = LongLongMap.pair(1 + random.nextInt(50), 1 + random.nextInt(100));
+            if (random.nextInt(3) == 0) {
+                table.remove(key);
+                expected.remove(key);
+            } else {
+                table.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+
+        assertThat(table.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(table.get(key, -1)).isEqualTo(value));
+        Map<Long, Long> visited = new HashMap<>();
+        table.forEach(visited::put);
+        assertThat(visited).isEqualTo(expected);
+    }
+}
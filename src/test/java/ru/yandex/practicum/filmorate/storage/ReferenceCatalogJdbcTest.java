@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.catalog.ReferenceCatalog;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({ReferenceCatalog.class, GenreDbStorage.class, MpaDbStorage.class})
+class ReferenceCatalogJdbcTest {
+
+    private final ReferenceCatalog catalog;
+    private final JdbcTemplate jdbc;
+
+    @Test
+    void loadedOnStartup() {
+        assertThat(catalog.getGenres()).extracting(Genre::getId).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(catalog.getMpa()).hasSize(5);
+        assertThat(catalog.findMpa(3)).isPresent().get()
+                .satisfies(m -> assertThat(m.getName()).isEqualTo("PG-13"));
+        assertThat(catalog.hasGenre(999)).isFalse();
+        assertThat(catalog.findMpa(999)).isEmpty();
+    }
+
+    @Test
+    void returnsCopies() {
+        catalog.findGenre(1).orElseThrow().setName("changed");
+        assertThat(catalog.findGenre(1).orElseThrow().getName()).isEqualTo("Комедия");
+    }
+
+    @Test
+    void reload() {
+        jdbc.update("INSERT INTO genres (id, name) VALUES (7, 'Фантастика')");
+        assertThat(catalog.hasGenre(7)).isFalse();
+
+        catalog.reload();
+        assertThat(catalog.hasGenre(7)).isTrue();
+
+        jdbc.update("DELETE FROM genres WHERE id = 7");
+        catalog.reload();
+    }
+}
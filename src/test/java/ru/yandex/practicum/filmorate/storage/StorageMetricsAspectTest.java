@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageMetricsAspectTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final UserStorage storage = proxy(new InMemoryUserStorage());
+
+    @Test
+    void recordsTimeAndRowsPerMethod() {
+        storage.create(user("a"));
+        storage.create(user("b"));
+        assertThat(storage.getAll(0, 10)).hasSize(2);
+        assertThat(storage.getById(99)).isEmpty();
+
+        assertThat(registry.get("filmorate.storage.query")
+                .tags("storage", "InMemoryUserStorage", "method", "getAll", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("filmorate.storage.query")
+                .tags("storage", "InMemoryUserStorage", "method", "create", "outcome", "success")
+                .timer().count()).isEqualTo(2);
+
+        assertThat(registry.get("filmorate.storage.rows")
+                .tags("storage", "InMemoryUserStorage", "method", "getAll")
+                .summary().totalAmount()).isEqualTo(2);
+        // пустой Optional — ноль строк, но замер есть
+        assertThat(registry.get("filmorate.storage.rows")
+                .tags("storage", "InMemoryUserStorage", "method", "getById")
+                .summary().count()).isEqualTo(1);
+        // create возвращает не коллекцию и не Optional — строки не считаются
+        assertThat(registry.find("filmorate.storage.rows").tags("method", "create").summary()).isNull();
+    }
+
+    @Test
+    void tagsFailureWithExceptionName() {
+        User missing = user("missing");
+        missing.setId(42);
+
+        assertThatThrownBy(() -> storage.update(missing)).isInstanceOf(NotFoundException.class);
+
+        assertThat(registry.get("filmorate.storage.query")
+                .tags("storage", "InMemoryUserStorage", "method", "update", "outcome", "NotFoundException")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.find("filmorate.storage.query")
+                .tags("method", "update", "outcome", "success").timer()).isNull();
+        assertThat(registry.find("filmorate.storage.rows").tags("method", "update").summary()).isNull();
+    }
+
+    private UserStorage proxy(UserStorage target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new StorageMetricsAspect(registry));
+        return factory.getProxy();
+    }
+
+    private static User user(String login) {
+        User u = new User();
+        u.setEmail(login + "@test");
+        u.setLogin(login);
+        u.setName(login);
+        u.setBirthday(LocalDate.of(1990, 1, 1));
+        return u;
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.TrendingCounters;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingCountersTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final AtomicLong clock = new AtomicLong(1_000 * HOUR);
+    private final TrendingCounters trending = new TrendingCounters(clock::get);
+
+    @Test
+    void mergesBucketsInsideWindow() {
+        trending.record(1, clock.get() - 30 * HOUR, 1);
+        trending.record(1, clock.get() - 30 * HOUR, 1);
+        trending.record(1, clock.get() - 30 * HOUR, 1);
+        trending.record(2, clock.get() - 2 * HOUR, 1);
+        trending.record(2, clock.get(), 1);
+        trending.record(3, clock.get(), 1);
+
+        assertThat(trending.top(Duration.ofHours(24), 10)).containsExactly(2, 3);
+        assertThat(trending.top(Duration.ofHours(48), 10)).containsExactly(1, 2, 3);
+        assertThat(trending.top(Duration.ofHours(48), 1)).containsExactly(1);
+    }
+
+    @Test
+    void removedLikeIsSubtractedFromItsBucket() {
+        long likedAt = clock.get() - 5 * HOUR;
+        trending.record(1, likedAt, 1);
+        trending.record(1, likedAt, -1);
+
+        assertThat(trending.top(Duration.ofHours(24), 10)).isEmpty();
+    }
+
+    @Test
+    void expiredBucketsAreDropped() {
+        trending.record(1, clock.get(), 1);
+        clock.addAndGet(TrendingCounters.RETENTION.toMillis());
+        trending.record(2, clock.get(), 1);
+        trending.record(3, clock.get() - TrendingCounters.RETENTION.toMillis(), 1);
+
+        assertThat(trending.top(TrendingCounters.RETENTION, 10)).containsExactly(2);
+    }
+}
@@ -8,9 +8,11 @@ import org.springframework.context.annotation.Import;
 import lombok.RequiredArgsConstructor;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.journal.EventJournal;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -19,7 +21,7 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 @JdbcTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Import(UserDbStorage.class)
+@Import({UserDbStorage.class, EventJournal.class})
 class UserDbStorageJdbcTest {
 
     private final UserDbStorage userStorage;
@@ -68,4 +70,94 @@ class UserDbStorageJdbcTest {
         assertThatThrownBy(() -> userStorage.update(u2))
                 .isInstanceOf(NotFoundException.class);
     }
+
+    @Test
+    void getAllByPages() {
+        User a = new User();
+        a.setEmail("a@example.com"); a.setLogin("a"); a.setName("A");
+        a.setBirthday(LocalDate.of(2000,1,1));
+        a = userStorage.create(a);
+
+        User b = new User();
+        b.setEmail("b@example.com"); b.setLogin("b"); b.setName("B");
+        b.setBirthday(LocalDate.of(2000,1,1));
+        b = userStorage.create(b);
+
+        User c = new User();
+        c.setEmail("c@example.com"); c.setLogin("c"); c.setName("C");
+        c.setBirthday(LocalDate.of(2000,1,1));
+        c = userStorage.create(c);
+
+        List<User> first = userStorage.getAll(a.getId() - 1, 2);
+        assertThat(first).extracting(User::getId).containsExactly(a.getId(), b.getId());
+
+        List<User> second = userStorage.getAll(b.getId(), 2);
+        assertThat(second).extracting(User::getId).containsExactly(c.getId());
+
+        assertThat(userStorage.getAll()).extracting(User::getId).contains(a.getId(), b.getId(), c.getId());
+    }
+
+    @Test
+    void friendsAndCommonFriends() {
+        User a = new User();
+        a.setEmail("fa@example.com"); a.setLogin("fa"); a.setName("FA");
+        a.setBirthday(LocalDate.of(2000,1,1));
+        a = userStorage.create(a);
+
+        User b = new User();
+        b.setEmail("fb@example.com"); b.setLogin("fb"); b.setName("FB");
+        b.setBirthday(LocalDate.of(2000,1,1));
+        b = userStorage.create(b);
+
+        User c = new User();
+        c.setEmail("fc@example.com"); c.setLogin("fc"); c.setName("FC");
+        c.setBirthday(LocalDate.of(2000,1,1));
+        c = userStorage.create(c);
+
+        userStorage.addFriend(a.getId(), c.getId());
+        userStorage.addFriend(a.getId(), b.getId());
+        userStorage.addFriend(b.getId(), c.getId());
+        userStorage.confirmFriend(a.getId(), c.getId());
+
+        assertThat(userStorage.getFriends(a.getId())).extracting(User::getId).containsExactly(b.getId(), c.getId());
+        assertThat(userStorage.getCommonFriends(a.getId(), b.getId())).extracting(User::getLogin)
+                .containsExactly("fc");
+
+        userStorage.removeFriend(b.getId(), c.getId());
+        assertThat(userStorage.getCommonFriends(a.getId(), b.getId())).isEmpty();
+        assertThat(userStorage.getFriends(b.getId())).isEmpty();
+    }
+
+    @Test
+    void friendSuggestionsKeepRanking() {
+        int[] ids = new int[5];
+        for (int i = 0; i < ids.length; i++) {
+            User u = new User();
+            u.setEmail("s" + i + "@example.com"); u.setLogin("s" + i); u.setName("S" + i);
+            u.setBirthday(LocalDate.of(2000,1,1));
+            ids[i] = userStorage.create(u).getId();
+        }
+
+        userStorage.addFriend(ids[0], ids[1]);
+        userStorage.addFriend(ids[0], ids[2]);
+        userStorage.addFriend(ids[1], ids[3]);
+        userStorage.addFriend(ids[1], ids[4]);
+        userStorage.addFriend(ids[2], ids[4]);
+
+        // у ids[4] два общих друга, у ids[3] один — порядок не по id
+        assertThat(userStorage.getFriendSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[4], ids[3]);
+    }
+
+    @Test
+    void existsWithoutLoading() {
+        User u = new User();
+        u.setEmail("exists@example.com"); u.setLogin("exists"); u.setName("E");
+        u.setBirthday(LocalDate.of(2000,1,1));
+        User created = userStorage.create(u);
+
+        assertThat(userStorage.exists(created.getId())).isTrue();
+        assertThat(userStorage.exists(created.getId() + 1000)).isFalse();
+        assertThat(userStorage.exists(-1)).isFalse();
+    }
 }